@@ -2,10 +2,13 @@
 module run.duke {
   exports run.duke;
 
+  requires java.management;
   requires transitive java.net.http;
   requires jdk.compiler;
   requires jdk.jartool;
   requires jdk.javadoc;
+  requires jdk.jfr;
+  requires jdk.management;
   requires transitive jdk.tools;
 
   uses java.util.spi.ToolProvider;
@@ -1,81 +1,721 @@
 package run.duke;
 
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpClient.Redirect;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.CopyOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+public record DukeBrowser(HttpClient client, DukeCache cache, DukeHttpCache http) {
+  /** Maps URI fragment keys to names of message digest algorithms, strongest algorithm first. */
+  static final Map<String, String> DIGEST_ALGORITHMS = newDigestAlgorithms();
+
+  private static final Pattern CONTENT_RANGE_PATTERN =
+      Pattern.compile("bytes\\s+(?:(\\d+)-(\\d+)|\\*)/(\\d+|\\*)");
 
-public record DukeBrowser(HttpClient client) {
+  /**
+   * {@return a browser configured by system properties}
+   *
+   * <p>Property {@code -Duke.http.version} selects the preferred HTTP version, defaults to {@code
+   * HTTP_2}, and property {@code -Duke.http.threads} sets the number of threads used by the client
+   * to handle asynchronous requests, defaults to the client's own executor.
+   */
   public static DukeBrowser ofSystem() {
-    return new DukeBrowser(HttpClient.newBuilder().followRedirects(Redirect.NORMAL).build());
+    var version = HttpClient.Version.valueOf(System.getProperty("uke.http.version", "HTTP_2"));
+    var threads = Integer.getInteger("uke.http.threads", 0);
+    var executor = threads > 0 ? Optional.of(newExecutor(threads)) : Optional.<Executor>empty();
+    return DukeBrowser.of(version, executor);
+  }
+
+  private static Map<String, String> newDigestAlgorithms() {
+    var map = new LinkedHashMap<String, String>();
+    map.put("sha512", "SHA-512");
+    map.put("sha256", "SHA-256");
+    map.put("sha1", "SHA-1");
+    map.put("md5", "MD5");
+    return Collections.unmodifiableMap(map);
+  }
+
+  public static DukeBrowser of(HttpClient.Version version, Optional<Executor> executor) {
+    var builder = HttpClient.newBuilder().followRedirects(Redirect.NORMAL).version(version);
+    executor.ifPresent(builder::executor);
+    return new DukeBrowser(builder.build());
+  }
+
+  private static Executor newExecutor(int threads) {
+    return Executors.newFixedThreadPool(
+        threads,
+        runnable -> {
+          var thread = new Thread(runnable, "duke-http");
+          thread.setDaemon(true);
+          return thread;
+        });
   }
 
+  /** Creates a browser using the given client and the caches configured by system properties. */
+  public DukeBrowser(HttpClient client) {
+    this(client, DukeCache.ofSystem(), DukeHttpCache.ofSystem());
+  }
+
+  public DukeBrowser with(HttpClient client) {
+    return new DukeBrowser(client, cache, http);
+  }
+
+  /** Reads the resource as a string, revalidating a previously read copy if possible. */
   public String read(URI source) {
     try {
       if (source.getScheme().equals("file")) {
         return Files.readString(Path.of(source));
       }
-      var request = HttpRequest.newBuilder(source).build();
-      var response = client.send(request, HttpResponse.BodyHandlers.ofString());
-      if (response.statusCode() < 400) return response.body();
+      var entry = http.find(source).filter(DukeHttpCache.Entry::hasBody);
+      var builder = HttpRequest.newBuilder(source);
+      entry.ifPresent(found -> found.validate(builder));
+      var response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() == 304 && entry.isPresent()) return entry.get().readBody();
+      if (response.statusCode() < 400) {
+        http.store(source, response.headers(), response.body());
+        return response.body();
+      }
       throw new RuntimeException(response.toString());
     } catch (Exception exception) {
       throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
     }
   }
 
+  /**
+   * Streams the resource, or a range of its bytes, as UTF-8 text to the given writer.
+   *
+   * <p>Content is transferred in bounded chunks and never held in memory as a whole. A range is
+   * given like the value of an HTTP {@code Range} header without unit: {@code first-last} with an
+   * inclusive last byte position, {@code first-} up to the end, or {@code -length} for the final
+   * bytes. Remote resources read without a range are revalidated and stored like by {@link
+   * #read(URI)}.
+   *
+   * @param range the range of bytes to read, or {@code null} to read the entire resource
+   */
+  public void read(URI source, String range, Writer writer) {
+    try {
+      if (source.getScheme().equals("file")) {
+        try (var channel = FileChannel.open(Path.of(source))) {
+          var size = channel.size();
+          var bounds = range == null ? new long[] {0, size} : bounds(range, size);
+          channel.position(bounds[0]);
+          var input = new RangeInputStream(Channels.newInputStream(channel), bounds[1] - bounds[0]);
+          transfer(input, writer);
+        }
+        return;
+      }
+      var builder = HttpRequest.newBuilder(source);
+      var entry = Optional.<DukeHttpCache.Entry>empty();
+      if (range == null) {
+        entry = http.find(source).filter(DukeHttpCache.Entry::hasBody);
+        entry.ifPresent(found -> found.validate(builder));
+      } else {
+        builder.header("Range", "bytes=" + range);
+      }
+      var response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+      try (var body = response.body()) {
+        var code = response.statusCode();
+        if (code == 304 && entry.isPresent()) {
+          try (var cached = Files.newInputStream(entry.get().body())) {
+            transfer(cached, writer);
+          }
+          return;
+        }
+        if (code >= 400) throw new RuntimeException(response.toString());
+        var headers = response.headers();
+        if (range != null) {
+          if (code == 206) {
+            transfer(body, writer);
+            return;
+          }
+          // the server ignored the range header and sent the entire resource
+          var length = headers.firstValueAsLong("content-length").orElse(Long.MAX_VALUE);
+          var bounds = bounds(range, length);
+          body.skipNBytes(bounds[0]);
+          transfer(new RangeInputStream(body, bounds[1] - bounds[0]), writer);
+          return;
+        }
+        var validated = headers.firstValue("etag").or(() -> headers.firstValue("last-modified"));
+        if (validated.isEmpty()) {
+          transfer(body, writer);
+          return;
+        }
+        var file = http.newBodyFile();
+        try (var output = Files.newOutputStream(file)) {
+          transfer(new RangeInputStream(body, Long.MAX_VALUE, output), writer);
+        } catch (Exception exception) {
+          Files.deleteIfExists(file);
+          throw exception;
+        }
+        http.storeBody(source, headers, file);
+      }
+    } catch (Exception exception) {
+      throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
+    }
+  }
+
+  /** {@return the first position and the exclusive end position of a range of bytes} */
+  static long[] bounds(String range, long size) {
+    var index = range.indexOf('-');
+    if (index < 0) throw new IllegalArgumentException("Range without '-': " + range);
+    var first = range.substring(0, index).strip();
+    var last = range.substring(index + 1).strip();
+    if (first.isEmpty()) {
+      if (size == Long.MAX_VALUE) throw new IllegalArgumentException("Unknown size: " + range);
+      return new long[] {Math.max(0, size - Long.parseLong(last)), size};
+    }
+    var from = Long.parseLong(first);
+    var to = last.isEmpty() ? size : Math.min(size, Long.parseLong(last) + 1);
+    if (from > to) throw new IllegalArgumentException("Range not satisfiable: " + range);
+    return new long[] {from, to};
+  }
+
+  private static void transfer(InputStream input, Writer writer) throws Exception {
+    var reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+    var buffer = new char[8192];
+    for (int n = reader.read(buffer); n >= 0; n = reader.read(buffer)) writer.write(buffer, 0, n);
+    writer.flush();
+  }
+
+  /** An input stream reading at most a number of bytes, optionally copying them to an output. */
+  private static final class RangeInputStream extends FilterInputStream {
+    private final OutputStream tee;
+    private long remaining;
+
+    RangeInputStream(InputStream in, long remaining) {
+      this(in, remaining, OutputStream.nullOutputStream());
+    }
+
+    RangeInputStream(InputStream in, long remaining, OutputStream tee) {
+      super(in);
+      this.remaining = remaining;
+      this.tee = tee;
+    }
+
+    @Override
+    public int read() throws IOException {
+      var bytes = new byte[1];
+      return read(bytes, 0, 1) < 0 ? -1 : bytes[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (remaining <= 0) return -1;
+      var n = in.read(bytes, offset, (int) Math.min(length, remaining));
+      if (n < 0) return -1;
+      remaining -= n;
+      tee.write(bytes, offset, n);
+      return n;
+    }
+  }
+
   public Path copy(URI source, Path target) {
+    try {
+      return copyAsync(source, target).join();
+    } catch (CompletionException exception) {
+      throw unwrap(exception);
+    }
+  }
+
+  private static RuntimeException unwrap(CompletionException exception) {
+    var cause = exception.getCause();
+    if (cause instanceof Error error) throw error;
+    return (cause instanceof RuntimeException re) ? re : new RuntimeException(cause);
+  }
+
+  /**
+   * Copies the resource into the target file, resuming an interrupted transfer if possible.
+   *
+   * <p>Remote resources are written to a {@code .part} file next to the target first. An existing
+   * part file is continued by requesting the remaining bytes via an HTTP {@code Range} header,
+   * guarded by an {@code If-Range} header carrying the entity tag or last modification date of the
+   * first response, kept in a {@code .part.if-range} file. A part file without such a validator is
+   * discarded. Partial responses must start at the end of the part file as stated by their {@code
+   * Content-Range} header. The part file is moved to the target file only after the transfer
+   * completed successfully.
+   *
+   * <p>Expected size and checksums are read from the fragment of the source URI, like {@code
+   * #content-length=123&sha256=abc...}. Checksums are computed while the body is streamed and a
+   * transfer is aborted as soon as the response announces an unexpected length.
+   */
+  public CompletableFuture<Path> copyAsync(URI source, Path target) {
     if (target.toString().isBlank()) throw new IllegalArgumentException("Blank target!");
-    if (Files.exists(target)) return target;
+    if (Files.exists(target)) return CompletableFuture.completedFuture(target);
     try {
       var parent = target.getParent();
       if (parent != null) Files.createDirectories(parent);
       if (source.getScheme().equals("file")) {
         var options = List.of(StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.COPY_ATTRIBUTES);
-        return Files.copy(Path.of(source), target, options.toArray(CopyOption[]::new));
+        var file = Files.copy(Path.of(source), target, options.toArray(CopyOption[]::new));
+        return CompletableFuture.completedFuture(file);
       }
-      var request = HttpRequest.newBuilder(source).build();
-      var response = client.send(request, HttpResponse.BodyHandlers.ofFile(target));
-      if (response.statusCode() < 400) return target;
-      Files.deleteIfExists(target);
-      throw new RuntimeException(response.toString());
+      if (cache.enabled()) {
+        var cached = cache.find(source);
+        if (cached.isPresent()) {
+          return CompletableFuture.completedFuture(cache.materialize(cached.get(), target));
+        }
+      }
+      var part = target.resolveSibling(target.getFileName() + ".part");
+      var validator = readValidator(part);
+      if (validator.isEmpty()) deletePart(part);
+      var offset = Files.isRegularFile(part) ? Files.size(part) : 0L;
+      var builder = HttpRequest.newBuilder(source);
+      if (offset > 0) {
+        builder.header("Range", "bytes=" + offset + "-").header("If-Range", validator.get());
+      }
+      var digests = newMessageDigests(source, part, offset);
+      return client
+          .sendAsync(builder.build(), info -> handlePart(info, source, part, offset, digests))
+          .thenCompose(
+              response -> {
+                if (offset > 0 && isUnsatisfiablePart(response, source, part)) {
+                  deletePart(part); // stale part file, start over
+                  return copyAsync(source, target);
+                }
+                var file = completePart(response, source, part, target, digests);
+                return CompletableFuture.completedFuture(file);
+              })
+          .thenApply(file -> cache.enabled() ? cache.store(source, file) : file);
+    } catch (Exception exception) {
+      return CompletableFuture.failedFuture(exception);
+    }
+  }
+
+  /** Returns message digests for all checksums in the fragment, fed with the part file. */
+  private static Map<String, MessageDigest> newMessageDigests(URI source, Path part, long offset)
+      throws Exception {
+    var headers = headers(source.getFragment());
+    var digests = new TreeMap<String, MessageDigest>();
+    for (var entry : DIGEST_ALGORITHMS.entrySet()) {
+      if (headers.firstValue(entry.getKey()).isEmpty()) continue;
+      digests.put(entry.getKey(), MessageDigest.getInstance(entry.getValue()));
+    }
+    if (digests.isEmpty() || offset == 0) return digests;
+    try (var channel = FileChannel.open(part)) {
+      var buffer = ByteBuffer.allocate(65536);
+      while (channel.read(buffer.clear()) > 0) {
+        for (var digest : digests.values()) digest.update(buffer.flip().duplicate());
+      }
+    }
+    return digests;
+  }
+
+  private static HttpResponse.BodySubscriber<Path> handlePart(
+      HttpResponse.ResponseInfo info,
+      URI source,
+      Path part,
+      long offset,
+      Map<String, MessageDigest> digests) {
+    var code = info.statusCode();
+    if (code >= 400) return HttpResponse.BodySubscribers.replacing(part);
+    var resume = code == 206;
+    var headers = headers(source.getFragment());
+    var expected = headers.firstValueAsLong("content-length").orElse(-1L);
+    var length = info.headers().firstValueAsLong("content-length").orElse(-1L);
+    if (resume) {
+      var range = parseContentRange(info.headers());
+      if (range[0] != offset) {
+        var message = "Unexpected content range of %s: %s".formatted(source, info.headers().map());
+        return abort(part, new AssertionError(message));
+      }
+      length = range[2] >= 0 ? range[2] - offset : length;
+    } else {
+      writeValidator(part, info.headers());
+    }
+    if (expected >= 0 && length >= 0) {
+      var actual = length + (resume ? offset : 0);
+      if (expected != actual) {
+        return abort(part, failSameSize(expected, actual, "Size mismatch of " + source));
+      }
+    }
+    var file =
+        resume
+            ? HttpResponse.BodySubscribers.ofFile(part, CREATE, WRITE, APPEND)
+            : HttpResponse.BodySubscribers.ofFile(part, CREATE, WRITE, TRUNCATE_EXISTING);
+    if (digests.isEmpty()) return file;
+    if (!resume) digests.values().forEach(MessageDigest::reset);
+    return new DigestingSubscriber(file, digests);
+  }
+
+  private static HttpResponse.BodySubscriber<Path> abort(Path part, Throwable error) {
+    try {
+      deletePart(part);
+    } catch (RuntimeException exception) {
+      error.addSuppressed(exception);
+    }
+    return new AbortingSubscriber(error);
+  }
+
+  /**
+   * {@return first position, last position, and complete length of a {@code Content-Range}}
+   *
+   * <p>Unknown values are returned as {@code -1}.
+   */
+  static long[] parseContentRange(HttpHeaders headers) {
+    var value = headers.firstValue("content-range").orElse("").strip();
+    var matcher = CONTENT_RANGE_PATTERN.matcher(value);
+    if (!matcher.matches()) return new long[] {-1, -1, -1};
+    var first = matcher.group(1) == null ? -1 : Long.parseLong(matcher.group(1));
+    var last = matcher.group(2) == null ? -1 : Long.parseLong(matcher.group(2));
+    var total = matcher.group(3).equals("*") ? -1 : Long.parseLong(matcher.group(3));
+    return new long[] {first, last, total};
+  }
+
+  /** {@return the validator usable in an {@code If-Range} header to resume the part file} */
+  static Optional<String> readValidator(Path part) {
+    var file = part.resolveSibling(part.getFileName() + ".if-range");
+    try {
+      if (!Files.isRegularFile(file)) return Optional.empty();
+      var value = Files.readString(file).strip();
+      return value.isEmpty() ? Optional.empty() : Optional.of(value);
+    } catch (Exception exception) {
+      return Optional.empty();
+    }
+  }
+
+  /** Writes a strong entity tag, or the last modification date, of a complete response. */
+  private static void writeValidator(Path part, HttpHeaders headers) {
+    var file = part.resolveSibling(part.getFileName() + ".if-range");
+    var validator =
+        headers
+            .firstValue("etag")
+            .filter(tag -> !tag.startsWith("W/"))
+            .or(() -> headers.firstValue("last-modified"));
+    try {
+      if (validator.isPresent()) Files.writeString(file, validator.get());
+      else Files.deleteIfExists(file);
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  private static void deletePart(Path part) {
+    try {
+      Files.deleteIfExists(part);
+      Files.deleteIfExists(part.resolveSibling(part.getFileName() + ".if-range"));
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  /** A body subscriber that cancels its subscription and fails immediately. */
+  private record AbortingSubscriber(Throwable error) implements HttpResponse.BodySubscriber<Path> {
+    @Override
+    public CompletionStage<Path> getBody() {
+      return CompletableFuture.failedFuture(error);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      subscription.cancel();
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {}
+
+    @Override
+    public void onError(Throwable throwable) {}
+
+    @Override
+    public void onComplete() {}
+  }
+
+  /** Verifies all digests against the expected checksums, deleting the part file on mismatch. */
+  private static void verifyDigests(
+      Map<String, MessageDigest> digests, HttpHeaders expected, Path part) {
+    for (var entry : digests.entrySet()) {
+      var expectedValue = expected.firstValue(entry.getKey()).orElseThrow();
+      var actualValue = HexFormat.of().formatHex(entry.getValue().digest());
+      if (expectedValue.equalsIgnoreCase(actualValue)) continue;
+      deletePart(part);
+      var message =
+          """
+              Checksum mismatch of downloaded file: %s
+                  algorithm: %s
+                   expected: %s
+                     actual: %s
+              """
+              .formatted(part, entry.getKey(), expectedValue, actualValue);
+      throw new AssertionError(message);
+    }
+  }
+
+  /** A body subscriber that updates message digests before passing all bytes to a delegate. */
+  private record DigestingSubscriber(
+      HttpResponse.BodySubscriber<Path> delegate, Map<String, MessageDigest> digests)
+      implements HttpResponse.BodySubscriber<Path> {
+    @Override
+    public CompletionStage<Path> getBody() {
+      return delegate.getBody();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      delegate.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+      for (var item : items) {
+        for (var digest : digests.values()) digest.update(item.duplicate());
+      }
+      delegate.onNext(items);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      delegate.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      delegate.onComplete();
+    }
+  }
+
+  /** {@return whether the server rejected the range of a part file that is not complete} */
+  private static boolean isUnsatisfiablePart(HttpResponse<Path> response, URI source, Path part) {
+    if (response.statusCode() != 416) return false;
+    return !isCompletePart(response, source, part);
+  }
+
+  /** {@return whether the range was rejected because the part file already holds all bytes} */
+  private static boolean isCompletePart(HttpResponse<Path> response, URI source, Path part) {
+    try {
+      var size = Files.size(part);
+      var total = parseContentRange(response.headers())[2];
+      if (total >= 0) return total == size;
+      var expected = headers(source.getFragment()).firstValueAsLong("content-length").orElse(-1L);
+      return expected == size;
+    } catch (Exception exception) {
+      return false;
+    }
+  }
+
+  /**
+   * Moves the completely transferred part file to the target file.
+   *
+   * <p>Expected size and checksums are read from the fragment of the source URI as given, as the
+   * URI of the final request lacks the fragment after redirects. Both are checked against the
+   * bytes written to the part file, which may not be announced by a {@code Content-Length} header
+   * of chunked responses.
+   */
+  private static Path completePart(
+      HttpResponse<Path> response,
+      URI source,
+      Path part,
+      Path target,
+      Map<String, MessageDigest> digests) {
+    try {
+      if (response.statusCode() >= 400 && response.statusCode() != 416) {
+        throw new RuntimeException(response.toString());
+      }
+      checkDownloadedFile(source, part, digests);
+      var file = Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+      deletePart(part);
+      return file;
     } catch (Exception exception) {
       throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
     }
   }
 
+  /** Checks size and checksums of the part file, deleting it on mismatch. */
+  private static void checkDownloadedFile(
+      URI source, Path part, Map<String, MessageDigest> digests) throws Exception {
+    var headers = headers(source.getFragment());
+    var expected = headers.firstValueAsLong("content-length").orElse(-1L);
+    var actual = Files.size(part);
+    if (expected >= 0 && expected != actual) {
+      deletePart(part);
+      checkSameSize(expected, actual, "Size mismatch of downloaded file: " + source);
+    }
+    verifyDigests(digests, headers, part);
+  }
+
   public Path download(URI source, Path target) {
     if (source.getScheme().equals("file")) throw new UnsupportedOperationException();
-    var expected = headers(source.getFragment()).firstValueAsLong("content-length").orElse(-1L);
-    if (expected >= 0) {
-      var actual = headers(source).firstValueAsLong("content-length").orElse(-1L);
-      checkSameSize(expected, actual, "Size mismatch!");
+    return copy(source, target);
+  }
+
+  /**
+   * Downloads all resources concurrently.
+   *
+   * @param downloads the map of remote resources to target files
+   * @param parallelism the maximum number of concurrent transfers
+   * @return the list of downloaded files in iteration order of the given map
+   */
+  public List<Path> download(Map<URI, Path> downloads, int parallelism) {
+    return download(downloads, parallelism, parallelism, (source, target) -> {});
+  }
+
+  /**
+   * Downloads all resources concurrently, limiting the number of transfers per host.
+   *
+   * <p>Transfers start in iteration order of the given map as soon as both limits allow, a busy
+   * host does not hold back transfers from other hosts.
+   *
+   * @param downloads the map of remote resources to target files
+   * @param parallelism the maximum number of concurrent transfers
+   * @param parallelismPerHost the maximum number of concurrent transfers from a single host
+   * @param listener the callback invoked with source and target after each completed transfer
+   * @return the list of downloaded files in iteration order of the given map
+   */
+  public List<Path> download(
+      Map<URI, Path> downloads,
+      int parallelism,
+      int parallelismPerHost,
+      BiConsumer<URI, Path> listener) {
+    if (parallelism < 1) throw new IllegalArgumentException("parallelism < 1: " + parallelism);
+    if (parallelismPerHost < 1) {
+      throw new IllegalArgumentException("parallelismPerHost < 1: " + parallelismPerHost);
+    }
+    var transfers = new Transfers(this, parallelism, parallelismPerHost, listener);
+    var futures = new ArrayList<CompletableFuture<Path>>();
+    for (var entry : downloads.entrySet()) {
+      var source = entry.getKey();
+      if (source.getScheme().equals("file")) throw new UnsupportedOperationException();
+      futures.add(transfers.add(source, entry.getValue()));
     }
-    var file = copy(source, target);
+    transfers.start();
     try {
-      var actual = Files.size(file);
-      if (expected >= 0 && expected != actual) {
-        Files.deleteIfExists(file);
-        checkSameSize(expected, actual, "Size mismatch of downloaded file: " + file);
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+      return futures.stream().map(CompletableFuture::join).toList();
+    } catch (CompletionException exception) {
+      throw unwrap(exception);
+    }
+  }
+
+  /** Pending transfers, started by completions of running transfers instead of blocking threads. */
+  private static final class Transfers {
+    record Transfer(URI source, Path target, String host, CompletableFuture<Path> future) {}
+
+    private final DukeBrowser browser;
+    private final int parallelism;
+    private final int parallelismPerHost;
+    private final BiConsumer<URI, Path> listener;
+    private final List<Transfer> pending = new LinkedList<>();
+    private final Map<String, Integer> hosts = new HashMap<>();
+    private int running;
+    private boolean starting;
+
+    Transfers(
+        DukeBrowser browser,
+        int parallelism,
+        int parallelismPerHost,
+        BiConsumer<URI, Path> listener) {
+      this.browser = browser;
+      this.parallelism = parallelism;
+      this.parallelismPerHost = parallelismPerHost;
+      this.listener = listener;
+    }
+
+    synchronized CompletableFuture<Path> add(URI source, Path target) {
+      var host = Objects.requireNonNullElse(source.getAuthority(), "");
+      var transfer = new Transfer(source, target, host, new CompletableFuture<>());
+      pending.add(transfer);
+      return transfer.future();
+    }
+
+    /** Starts pending transfers until a limit is reached, unless another thread is doing so. */
+    void start() {
+      synchronized (this) {
+        if (starting) return;
+        starting = true;
       }
-    } catch (Exception exception) {
-      throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
+      while (true) {
+        Transfer next;
+        synchronized (this) {
+          next = poll();
+          if (next == null) {
+            starting = false;
+            return;
+          }
+        }
+        var source = next.source();
+        browser
+            .copyAsync(source, next.target())
+            .whenComplete(
+                (file, throwable) -> {
+                  release(next);
+                  if (throwable == null) listener.accept(source, file);
+                })
+            .whenComplete(
+                (file, throwable) -> {
+                  if (throwable == null) next.future().complete(file);
+                  else next.future().completeExceptionally(throwable);
+                  start();
+                });
+      }
+    }
+
+    /** {@return the first pending transfer allowed to run now, or {@code null}} */
+    private Transfer poll() {
+      if (running >= parallelism) return null;
+      for (var iterator = pending.iterator(); iterator.hasNext(); ) {
+        var transfer = iterator.next();
+        var count = hosts.getOrDefault(transfer.host(), 0);
+        if (count >= parallelismPerHost) continue;
+        iterator.remove();
+        hosts.put(transfer.host(), count + 1);
+        running++;
+        return transfer;
+      }
+      return null;
+    }
+
+    private synchronized void release(Transfer transfer) {
+      hosts.merge(transfer.host(), -1, Integer::sum);
+      running--;
     }
-    return target;
   }
 
   private static void checkSameSize(long expected, long actual, String caption) {
     if (expected == actual) return;
+    throw failSameSize(expected, actual, caption);
+  }
+
+  private static AssertionError failSameSize(long expected, long actual, String caption) {
     var message =
         """
                 %s
@@ -83,7 +723,7 @@ public record DukeBrowser(HttpClient client) {
                       actual: %,d
                 """
             .formatted(caption, expected, actual);
-    throw new AssertionError(message);
+    return new AssertionError(message);
   }
 
   public HttpHeaders headers(URI source) {
@@ -101,9 +741,14 @@ public record DukeBrowser(HttpClient client) {
                 List.of(regular ? String.valueOf(Files.size(path)) : "-1"));
         return HttpHeaders.of(map, (key, value) -> true);
       }
+      var entry = http.find(source);
       var publisher = HttpRequest.BodyPublishers.noBody();
-      var request = HttpRequest.newBuilder(source).method("HEAD", publisher).build();
-      return client.send(request, HttpResponse.BodyHandlers.discarding()).headers();
+      var builder = HttpRequest.newBuilder(source).method("HEAD", publisher);
+      entry.ifPresent(found -> found.validate(builder));
+      var response = client.send(builder.build(), HttpResponse.BodyHandlers.discarding());
+      if (response.statusCode() == 304 && entry.isPresent()) return entry.get().headers();
+      if (response.statusCode() < 400) http.store(source, response.headers(), null);
+      return response.headers();
     } catch (Exception exception) {
       throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
     }
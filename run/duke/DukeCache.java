@@ -0,0 +1,211 @@
+package run.duke;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * A user-level cache of downloaded files shared across projects.
+ *
+ * <p>Files are addressed by a checksum found in the fragment of their URI, like {@code
+ * #sha256=...}. Files of URIs without a checksum are not cached, as their content may change
+ * without notice. Cached files are verified against the expected size and checksum before use, and
+ * materialized into project folders as hard links, or as copies if linking is not supported.
+ *
+ * <p>Access times are tracked by marker files in a separate {@code .access} directory, as touching
+ * a cached file would also touch all of its hard links. The least recently used files are evicted
+ * when the total size of the cache exceeds its capacity, checked at most once per {@link
+ * #EVICTION_INTERVAL}.
+ *
+ * @param root the directory of the cache
+ * @param capacity the maximum size of the cache in bytes, {@code 0} disables the cache
+ */
+public record DukeCache(Path root, long capacity) {
+  static final Duration EVICTION_INTERVAL = Duration.ofMinutes(10);
+
+  /**
+   * {@return a cache configured by system properties, disabled unless {@code -Duke.cache} is set}
+   *
+   * <p>Property {@code -Duke.cache.directory} sets the root directory, defaults to {@code
+   * ~/.duke/cache}, and property {@code -Duke.cache.size} sets the capacity in bytes, defaults to
+   * 4 GiB.
+   */
+  public static DukeCache ofSystem() {
+    var home = Path.of(System.getProperty("user.home"), ".duke", "cache");
+    var root = Path.of(System.getProperty("uke.cache.directory", home.toString()));
+    if (!DukeToolProvider.is("-Duke.cache")) return new DukeCache(root, 0);
+    var capacity = Long.parseLong(System.getProperty("uke.cache.size", "4294967296"));
+    return new DukeCache(root, capacity);
+  }
+
+  public boolean enabled() {
+    return capacity > 0;
+  }
+
+  /** {@return the cache file of the given source, empty if its fragment has no checksum} */
+  public Optional<Path> file(URI source) {
+    var headers = DukeBrowser.headers(source.getFragment());
+    for (var algorithm : DukeBrowser.DIGEST_ALGORITHMS.keySet()) {
+      var checksum = headers.firstValue(algorithm);
+      if (checksum.isEmpty()) continue;
+      return Optional.of(root.resolve(algorithm).resolve(checksum.get().toLowerCase(Locale.ROOT)));
+    }
+    return Optional.empty();
+  }
+
+  /** Returns the verified cached file of the given source and marks it as recently used. */
+  public Optional<Path> find(URI source) {
+    var found = file(source).filter(Files::isRegularFile);
+    if (found.isEmpty()) return Optional.empty();
+    var file = found.get();
+    try {
+      if (!isIntact(source, file)) {
+        delete(file);
+        return Optional.empty();
+      }
+      touch(file);
+      return Optional.of(file);
+    } catch (NoSuchFileException exception) {
+      return Optional.empty();
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  /** {@return whether the file has the size and the checksum given by the source's fragment} */
+  static boolean isIntact(URI source, Path file) throws Exception {
+    var headers = DukeBrowser.headers(source.getFragment());
+    var size = headers.firstValueAsLong("content-length");
+    if (size.isPresent() && size.getAsLong() != Files.size(file)) return false;
+    for (var algorithm : DukeBrowser.DIGEST_ALGORITHMS.entrySet()) {
+      var expected = headers.firstValue(algorithm.getKey());
+      if (expected.isEmpty()) continue;
+      var digest = MessageDigest.getInstance(algorithm.getValue());
+      try (var channel = FileChannel.open(file)) {
+        var buffer = ByteBuffer.allocate(65536);
+        while (channel.read(buffer.clear()) > 0) digest.update(buffer.flip());
+      }
+      return HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(expected.get());
+    }
+    return true;
+  }
+
+  /** Moves the given file into the cache and materializes the cached file at its location. */
+  public Path store(URI source, Path file) {
+    var found = file(source);
+    if (found.isEmpty()) return file;
+    var cached = found.get();
+    try {
+      Files.createDirectories(cached.getParent());
+      var temp = Files.createTempFile(cached.getParent(), cached.getFileName().toString(), ".tmp");
+      Files.move(file, temp, StandardCopyOption.REPLACE_EXISTING);
+      Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      materialize(cached, file);
+      touch(cached);
+      evictLazily();
+      return file;
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  /** Creates a hard link to the cached file at the target location, or copies it. */
+  public Path materialize(Path cached, Path target) {
+    try {
+      var parent = target.getParent();
+      if (parent != null) Files.createDirectories(parent);
+      try {
+        return Files.createLink(target, cached);
+      } catch (UnsupportedOperationException | FileSystemException exception) {
+        return Files.copy(cached, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  private Path access(Path file) {
+    return root.resolve(".access").resolve(root.relativize(file));
+  }
+
+  private void touch(Path file) throws Exception {
+    var marker = access(file);
+    Files.createDirectories(marker.getParent());
+    if (Files.notExists(marker)) Files.createFile(marker);
+    Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+  }
+
+  private void delete(Path file) throws Exception {
+    Files.deleteIfExists(file);
+    Files.deleteIfExists(access(file));
+  }
+
+  /** Evicts files unless another eviction ran within the last eviction interval. */
+  void evictLazily() throws Exception {
+    var marker = root.resolve(".evicted");
+    var now = System.currentTimeMillis();
+    if (Files.isRegularFile(marker)) {
+      var last = Files.getLastModifiedTime(marker).toMillis();
+      if (now - last < EVICTION_INTERVAL.toMillis()) return;
+    } else {
+      Files.createFile(marker);
+    }
+    Files.setLastModifiedTime(marker, FileTime.fromMillis(now));
+    evict();
+  }
+
+  /** Deletes least recently used files until the cache size is within its capacity. */
+  public void evict() {
+    record Entry(Path path, long size, long time) {}
+    if (!Files.isDirectory(root)) return;
+    var entries = new ArrayList<Entry>();
+    var total = 0L;
+    try (var directories = Files.newDirectoryStream(root, Files::isDirectory)) {
+      for (var directory : directories) {
+        if (directory.getFileName().toString().equals(".access")) continue;
+        try (var stream = Files.list(directory)) {
+          for (var path : stream.filter(Files::isRegularFile).toList()) {
+            try {
+              var size = Files.size(path);
+              var marker = access(path);
+              var time =
+                  Files.isRegularFile(marker)
+                      ? Files.getLastModifiedTime(marker)
+                      : Files.getLastModifiedTime(path);
+              entries.add(new Entry(path, size, time.toMillis()));
+              total += size;
+            } catch (NoSuchFileException ignore) {
+              // deleted concurrently
+            }
+          }
+        }
+      }
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+    if (total <= capacity) return;
+    entries.sort(Comparator.comparingLong(Entry::time));
+    for (var entry : entries) {
+      if (total <= capacity) break;
+      try {
+        delete(entry.path());
+        total -= entry.size();
+      } catch (Exception exception) {
+        throw new RuntimeException(exception);
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package run.duke;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A growable character buffer capturing the output of a tool run.
+ *
+ * <p>Unlike a {@link PrintWriter} wrapping a {@link java.io.StringWriter}, this print writer does
+ * not lock on its write and line methods, and its content can be transferred to another writer or
+ * cleared for reuse without creating a string. It must be confined to one thread at a time.
+ */
+public final class DukeCapture extends PrintWriter {
+  private char[] buffer;
+  private int count;
+
+  public DukeCapture() {
+    this(256);
+  }
+
+  public DukeCapture(int initialCapacity) {
+    super(Writer.nullWriter());
+    this.buffer = new char[initialCapacity];
+  }
+
+  @Override
+  public void write(int c) {
+    ensureCapacity(count + 1);
+    buffer[count++] = (char) c;
+  }
+
+  @Override
+  public void write(char[] chars, int offset, int length) {
+    ensureCapacity(count + length);
+    System.arraycopy(chars, offset, buffer, count, length);
+    count += length;
+  }
+
+  @Override
+  public void write(String string, int offset, int length) {
+    ensureCapacity(count + length);
+    string.getChars(offset, offset + length, buffer, count);
+    count += length;
+  }
+
+  @Override
+  public void println() {
+    write(System.lineSeparator());
+  }
+
+  @Override
+  public void println(String string) {
+    write(String.valueOf(string));
+    println();
+  }
+
+  @Override
+  public void println(Object object) {
+    println(String.valueOf(object));
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= buffer.length) return;
+    buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+  }
+
+  public int length() {
+    return count;
+  }
+
+  /** Clears the captured characters, keeping the allocated buffer. */
+  public void reset() {
+    count = 0;
+  }
+
+  /** Writes all captured characters to the given writer and flushes it. */
+  public void writeTo(PrintWriter writer) {
+    writer.write(buffer, 0, count);
+    writer.flush();
+  }
+
+  @Override
+  public void flush() {}
+
+  @Override
+  public void close() {}
+
+  @Override
+  public String toString() {
+    return new String(buffer, 0, count);
+  }
+}
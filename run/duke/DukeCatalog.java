@@ -0,0 +1,129 @@
+package run.duke;
+
+import java.lang.module.ResolvedModule;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.spi.ToolProvider;
+import jdk.tools.ToolOperator;
+
+/**
+ * A persistent index of tool providers found in a module layer.
+ *
+ * <p>Catalog files not used for {@link #RETENTION} are deleted when another catalog is stored.
+ * Other processes may use other catalogs of the same directory concurrently.
+ */
+record DukeCatalog(List<Entry> entries) {
+  static final Duration RETENTION = Duration.ofDays(7);
+
+  record Entry(String name, String provider, List<String> requires) {
+    static Entry of(ToolProvider provider) {
+      var requires =
+          provider instanceof ToolOperator operator ? operator.requires() : List.<String>of();
+      return new Entry(provider.name(), provider.getClass().getName(), List.copyOf(requires));
+    }
+
+    static Entry parse(String line) {
+      var values = line.split("\t", -1);
+      var requires = values[2].isEmpty() ? List.<String>of() : List.of(values[2].split(","));
+      return new Entry(values[0], values[1], requires);
+    }
+
+    String toLine() {
+      return name + '\t' + provider + '\t' + String.join(",", requires);
+    }
+  }
+
+  static DukeCatalog of(ServiceLoader<ToolProvider> loader) {
+    var entries = loader.stream().map(ServiceLoader.Provider::get).map(Entry::of).toList();
+    return new DukeCatalog(entries);
+  }
+
+  static DukeCatalog of(
+      DukeFolders folders, ModuleLayer layer, ServiceLoader<ToolProvider> loader) {
+    var file = file(folders, layer);
+    var loaded = load(file);
+    if (loaded.isPresent()) return loaded.get();
+    var catalog = DukeCatalog.of(loader);
+    catalog.store(file);
+    return catalog;
+  }
+
+  static Path file(DukeFolders folders, ModuleLayer layer) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      digest.update(Runtime.version().toString().getBytes());
+      var layers = new ArrayList<ModuleLayer>();
+      layers.add(layer);
+      for (int i = 0; i < layers.size(); i++) layers.get(i).parents().forEach(layers::add);
+      for (var current : layers) {
+        for (var module : current.configuration().modules()) {
+          digest.update(describe(module).getBytes());
+        }
+      }
+      var key = HexFormat.of().formatHex(digest.digest(), 0, 16);
+      return folders.tmp("catalog", key + ".txt");
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  private static String describe(ResolvedModule module) throws Exception {
+    var reference = module.reference();
+    var description = reference.descriptor().toNameAndVersion();
+    var location = reference.location().orElse(null);
+    if (location == null || !location.getScheme().equals("file")) return description;
+    var path = Path.of(location);
+    var info = Files.isDirectory(path) ? path.resolve("module-info.class") : path;
+    var time = Files.exists(info) ? Files.getLastModifiedTime(info).toMillis() : 0;
+    return description + '|' + location + '|' + time;
+  }
+
+  static Optional<DukeCatalog> load(Path file) {
+    if (!Files.isRegularFile(file)) return Optional.empty();
+    try {
+      var now = Instant.now();
+      var time = Files.getLastModifiedTime(file).toInstant();
+      if (time.isBefore(now.minus(Duration.ofDays(1)))) {
+        Files.setLastModifiedTime(file, FileTime.from(now)); // mark as used, once per day
+      }
+      var entries = Files.readAllLines(file).stream().map(Entry::parse).toList();
+      return Optional.of(new DukeCatalog(entries));
+    } catch (Exception exception) {
+      return Optional.empty();
+    }
+  }
+
+  Optional<Entry> find(String name) {
+    return entries.stream().filter(entry -> entry.name().equals(name)).findFirst();
+  }
+
+  void store(Path file) {
+    try {
+      var parent = file.getParent();
+      if (parent != null && Files.isDirectory(parent)) {
+        var expired = FileTime.from(Instant.now().minus(RETENTION));
+        try (var stream = Files.list(parent)) {
+          for (var path : stream.toList()) {
+            if (Files.getLastModifiedTime(path).compareTo(expired) < 0) Files.deleteIfExists(path);
+          }
+        }
+      }
+      if (parent != null) Files.createDirectories(parent);
+      var temp = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.write(temp, entries.stream().map(Entry::toLine).toList());
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+}
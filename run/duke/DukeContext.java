@@ -9,4 +9,8 @@ public record DukeContext(ToolFinder finder, ToolPrinter printer, DukeFolders fo
   public DukeContext with(ToolFinder finder) {
     return new DukeContext(finder, printer, folders);
   }
+
+  public DukeContext with(ToolPrinter printer) {
+    return new DukeContext(finder, printer, folders);
+  }
 }
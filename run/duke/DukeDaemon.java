@@ -0,0 +1,287 @@
+package run.duke;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.concurrent.Executors;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolNotFoundException;
+
+/**
+ * A resident process running tasks sent by clients over a Unix-domain socket.
+ *
+ * <p>The daemon keeps the module layer compiled from Duke's sources and its composed tool finder
+ * in memory. Both are discarded and created again when a file below {@code .duke/src} changes.
+ * Output of tools is streamed back to the client while a task is running, an exception thrown by
+ * the task is rethrown by the client: as a {@link ToolNotFoundException} if it was one, so that
+ * the launcher exits with the same code as in-process runs do, otherwise as a runtime exception.
+ *
+ * <p>The daemon runs all tasks with its own system properties. A client with any Duke property
+ * set, like {@code -Duke.verbose}, runs its task in-process instead.
+ */
+final class DukeDaemon {
+  private static final int EXIT = 0;
+  private static final int OUT = 1;
+  private static final int ERR = 2;
+  private static final int FAIL = 3;
+
+  static Path socket(DukeFolders folders) {
+    return folders.tmp("duke.socket");
+  }
+
+  /** {@return whether a system property affecting Duke runs is set} */
+  static boolean hasDukeProperties() {
+    for (var name : System.getProperties().stringPropertyNames()) {
+      if (name.startsWith("uke.") || name.equals("ebug") || name.equals("ry-run")) return true;
+    }
+    return false;
+  }
+
+  /** {@return whether a daemon accepts connections on the given socket} */
+  static boolean isListening(Path socket) {
+    if (Files.notExists(socket)) return false;
+    try (var channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+      return channel.isConnected();
+    } catch (Exception exception) {
+      return false;
+    }
+  }
+
+  /** Runs the task in a daemon, if one is listening on the socket of the given folders. */
+  static OptionalInt runRemotely(
+      DukeFolders folders, PrintWriter out, PrintWriter err, String... args) {
+    var socket = socket(folders);
+    if (Files.notExists(socket) || hasDukeProperties()) return OptionalInt.empty();
+    SocketChannel channel;
+    try {
+      channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+    } catch (Exception exception) {
+      return OptionalInt.empty(); // stale socket file
+    }
+    try (channel) {
+      var output = new DataOutputStream(Channels.newOutputStream(channel));
+      output.writeInt(args.length);
+      for (var arg : args) output.writeUTF(arg);
+      output.flush();
+      var input = new DataInputStream(Channels.newInputStream(channel));
+      while (true) {
+        var type = input.readByte();
+        if (type == EXIT) return OptionalInt.of(input.readInt());
+        if (type == FAIL) {
+          var name = input.readUTF();
+          var message = new String(input.readNBytes(input.readInt()), StandardCharsets.UTF_8);
+          throw toException(name, message.isEmpty() ? null : message);
+        }
+        var writer = type == OUT ? out : err;
+        writer.write(input.readUTF());
+        writer.flush();
+      }
+    } catch (Exception exception) {
+      throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
+    }
+  }
+
+  /** {@return an exception of the given class name to be rethrown by the client} */
+  static RuntimeException toException(String name, String message) {
+    if (name.equals(ToolNotFoundException.class.getName())) {
+      return new RemoteToolNotFoundException(message);
+    }
+    return new RuntimeException(message);
+  }
+
+  private final DukeFolders folders;
+  private final DukeOutput output;
+  private volatile DukeSession session;
+
+  DukeDaemon(DukeFolders folders, DukeOutput output) {
+    this.folders = folders;
+    this.output = output;
+  }
+
+  /** Listens for tasks until the process is terminated. */
+  int serve() {
+    var socket = socket(folders);
+    if (isListening(socket)) {
+      var message = "Duke daemon already listening on " + socket;
+      return DukeToolProvider.ErrorCode.TASK_ERROR.describe(output.err(), message);
+    }
+    var printer = output.toPrinter();
+    var executor = Executors.newCachedThreadPool();
+    try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        var watcher = new DukeWatcher(__ -> false, folders.src())) {
+      Files.createDirectories(socket.getParent());
+      Files.deleteIfExists(socket);
+      server.bind(UnixDomainSocketAddress.of(socket));
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(socket)));
+      executor.execute(() -> invalidateOnChanges(watcher));
+      output.out().println("Duke daemon listening on " + socket);
+      output.out().flush();
+      while (true) {
+        var channel = server.accept();
+        executor.execute(() -> handle(channel));
+      }
+    } catch (Exception exception) {
+      printer.debug("Daemon stopped: " + exception);
+      throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
+    } finally {
+      executor.shutdownNow();
+      delete(socket);
+    }
+  }
+
+  private void invalidateOnChanges(DukeWatcher watcher) {
+    try {
+      while (true) {
+        var changes = watcher.await(Duration.ofMillis(200));
+        output.toPrinter().debug("Sources changed: " + changes);
+        session = null;
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException exception) {
+      // daemon stopped
+    }
+  }
+
+  private void handle(SocketChannel channel) {
+    try (channel) {
+      var input = new DataInputStream(Channels.newInputStream(channel));
+      var args = new ArrayList<String>();
+      for (int i = input.readInt(); i > 0; i--) args.add(input.readUTF());
+      var stream = new DataOutputStream(Channels.newOutputStream(channel));
+      var out = new PrintWriter(new FrameWriter(stream, OUT), true);
+      var err = new PrintWriter(new FrameWriter(stream, ERR), true);
+      try {
+        var code = run(output.with(out, err), args.toArray(String[]::new));
+        out.flush();
+        err.flush();
+        synchronized (stream) {
+          stream.writeByte(EXIT);
+          stream.writeInt(code);
+          stream.flush();
+        }
+      } catch (RuntimeException exception) {
+        out.flush();
+        err.flush();
+        var message = Objects.requireNonNullElse(exception.getMessage(), "");
+        var bytes = message.getBytes(StandardCharsets.UTF_8);
+        var kind =
+            exception instanceof ToolNotFoundException
+                ? ToolNotFoundException.class
+                : RuntimeException.class;
+        synchronized (stream) {
+          stream.writeByte(FAIL);
+          stream.writeUTF(kind.getName());
+          stream.writeInt(bytes.length);
+          stream.write(bytes);
+          stream.flush();
+        }
+      }
+    } catch (Exception exception) {
+      output.toPrinter().debug("Client failed: " + exception);
+    }
+  }
+
+  /** Runs a task like an in-process run does, reusing the session of previous tasks. */
+  private int run(DukeOutput output, String... args) {
+    DukeSession current;
+    synchronized (this) {
+      current = session;
+      if (current == null) {
+        var timings = new DukeTimings();
+        var sources = DukeSources.of(folders);
+        timings.mark("sources");
+        var configuration = DukeConfiguration.of(this.output.toPrinter(), folders, sources);
+        List<ToolFinder> initializedFinders;
+        try {
+          initializedFinders = DukeSession.initializeToolFinders(configuration);
+        } catch (Exception exception) {
+          var code = DukeToolProvider.ErrorCode.TOOL_INSTALLATION_ERROR;
+          return code.describe(output.err(), exception);
+        }
+        timings.mark("initializers");
+        current = DukeSession.of(configuration, initializedFinders, timings);
+        session = current;
+      }
+    }
+    return DukeToolProvider.run(current, output, new DukeTimings(), args);
+  }
+
+  private static void delete(Path socket) {
+    try {
+      Files.deleteIfExists(socket);
+    } catch (Exception ignore) {
+      // best effort
+    }
+  }
+
+  /** A tool-not-found exception thrown by a daemon, carrying the message of the original. */
+  private static final class RemoteToolNotFoundException extends ToolNotFoundException {
+    private final String message;
+
+    RemoteToolNotFoundException(String message) {
+      this.message = message;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+  }
+
+  /** A writer sending each written chunk of text as a frame of the given type. */
+  private static final class FrameWriter extends Writer {
+    private final DataOutputStream stream;
+    private final int type;
+
+    FrameWriter(DataOutputStream stream, int type) {
+      this.stream = stream;
+      this.type = type;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      try {
+        synchronized (stream) {
+          for (int i = 0; i < length; i += 8192) {
+            stream.writeByte(type);
+            stream.writeUTF(new String(chars, offset + i, Math.min(8192, length - i)));
+          }
+        }
+      } catch (Exception exception) {
+        throw new RuntimeException(exception);
+      }
+    }
+
+    @Override
+    public void flush() {
+      try {
+        synchronized (stream) {
+          stream.flush();
+        }
+      } catch (Exception exception) {
+        throw new RuntimeException(exception);
+      }
+    }
+
+    @Override
+    public void close() {
+      flush();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package run.duke;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder events emitted by Duke, recorded only if a recording is running.
+ *
+ * <p>Events are created only if {@link #isRecording()} returns {@code true}: the event classes, and
+ * the flight recorder classes they depend on, are not loaded by runs without a recording.
+ */
+final class DukeEvents {
+  /** {@return whether the flight recorder was started, by a command-line option or later} */
+  static boolean isRecording() {
+    return FlightRecorder.isInitialized();
+  }
+
+  @Name("run.duke.CompileSources")
+  @Label("Compile Sources")
+  @Description("Compilation of modules declared in Duke's source folder")
+  @Category("Duke")
+  static final class CompileSources extends Event {
+    @Label("Modules")
+    String modules;
+
+    @Label("Parallel")
+    boolean parallel;
+  }
+
+  @Name("run.duke.ResolveLayer")
+  @Label("Resolve Layer")
+  @Description("Resolution and definition of the module layer of Duke's sources")
+  @Category("Duke")
+  static final class ResolveLayer extends Event {
+    @Label("Roots")
+    String roots;
+  }
+
+  @Name("run.duke.InstallInitializer")
+  @Label("Install Initializer")
+  @Description("Initialization of tools by a Duke initializer service")
+  @Category("Duke")
+  static final class InstallInitializer extends Event {
+    @Label("Initializer")
+    String initializer;
+
+    @Label("Tools")
+    int tools;
+  }
+
+  @Name("run.duke.LookupTool")
+  @Label("Lookup Tool")
+  @Description("Lookup of a tool by its name")
+  @Category("Duke")
+  static final class LookupTool extends Event {
+    @Label("Name")
+    String name;
+
+    @Label("Found")
+    boolean found;
+  }
+
+  @Name("run.duke.RunCommand")
+  @Label("Run Command")
+  @Description("Run of a command by a Duke runner")
+  @Category("Duke")
+  static final class RunCommand extends Event {
+    @Label("Command")
+    String command;
+
+    @Label("Successful")
+    boolean successful;
+  }
+
+  private DukeEvents() {}
+}
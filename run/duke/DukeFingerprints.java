@@ -0,0 +1,122 @@
+package run.duke;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * A store mapping module names to fingerprints of their last successful compilation.
+ *
+ * <p>Next to the content-based fingerprint, a stamp of file names, sizes, and modification times
+ * is recorded per module. A matching stamp lets callers reuse the stored fingerprint without
+ * reading a single source file.
+ */
+record DukeFingerprints(Path file, Map<String, String> map, Map<String, String> stamps) {
+  static DukeFingerprints load(Path file) {
+    var map = new TreeMap<String, String>();
+    var stamps = new TreeMap<String, String>();
+    if (Files.isRegularFile(file)) {
+      try {
+        for (var line : Files.readAllLines(file)) {
+          var index = line.indexOf('=');
+          if (index <= 0) continue;
+          var name = line.substring(0, index);
+          var values = line.substring(index + 1).split("\t", 2);
+          map.put(name, values[0]);
+          if (values.length == 2) stamps.put(name, values[1]);
+        }
+      } catch (Exception exception) {
+        throw new RuntimeException(exception);
+      }
+    }
+    return new DukeFingerprints(file, map, stamps);
+  }
+
+  static String compute(Path directory, String salt) {
+    try (var stream = Files.walk(directory)) {
+      var digest = MessageDigest.getInstance("SHA-256");
+      digest.update(salt.getBytes());
+      var files = new ArrayList<>(stream.filter(Files::isRegularFile).toList());
+      files.sort(null);
+      for (var file : files) {
+        digest.update(directory.relativize(file).toString().getBytes());
+        digest.update(Files.readAllBytes(file));
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  static String stamp(Path directory, String salt) {
+    try (var stream = Files.walk(directory)) {
+      var digest = MessageDigest.getInstance("SHA-256");
+      digest.update(salt.getBytes());
+      var files = new ArrayList<>(stream.filter(Files::isRegularFile).toList());
+      files.sort(null);
+      for (var file : files) {
+        var size = Files.size(file);
+        var time = Files.getLastModifiedTime(file).toMillis();
+        digest.update((directory.relativize(file) + "|" + size + "|" + time + "\n").getBytes());
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  /** {@return names, sizes, and modification times of modules in the directory, not of others} */
+  static String describe(Path directory) {
+    var joiner = new StringJoiner(",");
+    if (!Files.isDirectory(directory)) return joiner.toString();
+    try (var stream = Files.list(directory)) {
+      for (var path : stream.sorted().toList()) {
+        var jar = Files.isRegularFile(path) && path.getFileName().toString().endsWith(".jar");
+        var module = jar || Files.exists(path.resolve("module-info.class"));
+        if (!module) continue; // like .duke/bin/sources or .duke/bin/duke.jsa
+        var name = path.getFileName().toString();
+        var size = Files.isRegularFile(path) ? Files.size(path) : 0;
+        var time = Files.getLastModifiedTime(path).toMillis();
+        joiner.add(name + '/' + size + '/' + time);
+      }
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+    return joiner.toString();
+  }
+
+  boolean matches(String name, String fingerprint) {
+    return fingerprint.equals(map.get(name));
+  }
+
+  /** {@return the stored fingerprint of the named module if its stamp is unchanged} */
+  Optional<String> find(String name, String stamp) {
+    if (!stamp.equals(stamps.get(name))) return Optional.empty();
+    return Optional.ofNullable(map.get(name));
+  }
+
+  DukeFingerprints with(Map<String, String> fingerprints, Map<String, String> stamps) {
+    return new DukeFingerprints(file, new TreeMap<>(fingerprints), new TreeMap<>(stamps));
+  }
+
+  void store() {
+    var lines = new ArrayList<String>();
+    map.forEach((name, print) -> lines.add(name + '=' + print + '\t' + stamps.get(name)));
+    try {
+      var parent = file.getParent();
+      if (parent != null) Files.createDirectories(parent);
+      var temp = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.write(temp, lines);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+}
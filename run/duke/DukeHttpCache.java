@@ -0,0 +1,159 @@
+package run.duke;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * A project-local store of HTTP response headers and bodies used to send conditional requests.
+ *
+ * <p>Responses carrying an {@code ETag} or a {@code Last-Modified} header are stored by a hash of
+ * their URI without fragment. Later requests of the same URI include {@code If-None-Match} and
+ * {@code If-Modified-Since} headers, and a {@code 304 Not Modified} response is answered from the
+ * stored entry.
+ *
+ * @param directory the directory of stored entries, usually {@code .duke/tmp/http}
+ */
+public record DukeHttpCache(Path directory) {
+  public record Entry(HttpHeaders headers, Path body) {
+    public boolean hasBody() {
+      return Files.isRegularFile(body);
+    }
+
+    public String readBody() {
+      try {
+        return Files.readString(body);
+      } catch (Exception exception) {
+        throw new RuntimeException(exception);
+      }
+    }
+
+    public HttpRequest.Builder validate(HttpRequest.Builder builder) {
+      headers.firstValue("etag").ifPresent(value -> builder.header("If-None-Match", value));
+      headers
+          .firstValue("last-modified")
+          .ifPresent(value -> builder.header("If-Modified-Since", value));
+      return builder;
+    }
+
+    public boolean hasSameValidators(HttpHeaders other) {
+      return headers.allValues("etag").equals(other.allValues("etag"))
+          && headers.allValues("last-modified").equals(other.allValues("last-modified"));
+    }
+  }
+
+  public static DukeHttpCache ofSystem() {
+    return new DukeHttpCache(DukeFolders.ofCurrentWorkingDirectory().tmp("http"));
+  }
+
+  public Optional<Entry> find(URI source) {
+    var key = key(source);
+    var file = directory.resolve(key + ".headers");
+    if (!Files.isRegularFile(file)) return Optional.empty();
+    try {
+      var map = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+      for (var line : Files.readAllLines(file)) {
+        var index = line.indexOf('\t');
+        if (index <= 0) continue;
+        var name = line.substring(0, index);
+        map.computeIfAbsent(name, __ -> new ArrayList<>()).add(line.substring(index + 1));
+      }
+      var headers = HttpHeaders.of(map, (name, value) -> true);
+      return Optional.of(new Entry(headers, directory.resolve(key + ".body")));
+    } catch (Exception exception) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Stores headers and body of a successful response.
+   *
+   * @param body the body of a GET request, or {@code null} for a HEAD request which keeps a
+   *     previously stored body only if the validators are unchanged
+   */
+  public void store(URI source, HttpHeaders headers, String body) {
+    try {
+      Path file = null;
+      if (body != null) file = Files.writeString(newBodyFile(), body);
+      storeBody(source, headers, file);
+    } catch (Exception exception) {
+      throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
+    }
+  }
+
+  /** {@return a new temporary file to stream a response body into before storing it} */
+  public Path newBodyFile() {
+    try {
+      Files.createDirectories(directory);
+      return Files.createTempFile(directory, "body", ".tmp");
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  /**
+   * Stores headers and a body file of a successful response.
+   *
+   * @param body the file containing the body of a GET request, moved into this store, or {@code
+   *     null} for a HEAD request which keeps a previously stored body only if the validators are
+   *     unchanged
+   */
+  public void storeBody(URI source, HttpHeaders headers, Path body) {
+    var key = key(source);
+    var headersFile = directory.resolve(key + ".headers");
+    var bodyFile = directory.resolve(key + ".body");
+    try {
+      var validated = headers.firstValue("etag").or(() -> headers.firstValue("last-modified"));
+      if (validated.isEmpty()) {
+        Files.deleteIfExists(headersFile);
+        Files.deleteIfExists(bodyFile);
+        if (body != null) Files.deleteIfExists(body);
+        return;
+      }
+      Files.createDirectories(directory);
+      if (body != null) {
+        Files.move(
+            body, bodyFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } else {
+        var old = find(source);
+        if (old.isEmpty() || !old.get().hasSameValidators(headers)) Files.deleteIfExists(bodyFile);
+      }
+      var lines = new StringBuilder();
+      for (Map.Entry<String, List<String>> entry : headers.map().entrySet()) {
+        if (entry.getKey().startsWith(":")) continue; // pseudo headers like :status
+        for (var value : entry.getValue()) {
+          lines.append(entry.getKey()).append('\t').append(value).append('\n');
+        }
+      }
+      write(headersFile, lines.toString());
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  private static void write(Path file, String string) throws Exception {
+    var temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+    Files.writeString(temp, string);
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static String key(URI source) {
+    try {
+      var uri = new URI(source.getScheme(), source.getSchemeSpecificPart(), null).toString();
+      var digest = MessageDigest.getInstance("SHA-256").digest(uri.getBytes());
+      return HexFormat.of().formatHex(digest);
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+}
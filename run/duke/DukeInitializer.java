@@ -1,15 +1,132 @@
 package run.duke;
 
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import jdk.tools.ToolFinder;
 import jdk.tools.ToolInstaller;
 
 public interface DukeInitializer {
-  record Helper(DukeConfiguration configuration) {
+  /** Installs tools on behalf of initializers that may run concurrently. */
+  final class Helper {
+    /** Monitors serializing threads of this JVM in front of the file lock, keyed by lock file. */
+    private static final Map<Path, Object> LOCKS = new ConcurrentHashMap<>();
+
+    private final DukeConfiguration configuration;
+
+    /** Futures of installations requested so far, keyed by tool folder name. */
+    private final Map<String, CompletableFuture<ToolFinder>> installations;
+
+    public Helper(DukeConfiguration configuration) {
+      this.configuration = configuration;
+      this.installations = new ConcurrentHashMap<>();
+    }
+
+    public DukeConfiguration configuration() {
+      return configuration;
+    }
+
+    /**
+     * Installs a tool into its folder, at most once per helper and across processes.
+     *
+     * <p>Identical requests share the future of the first request. Concurrent processes working
+     * on the same folders are serialized by a file lock next to the tool folder, helpers within
+     * one process by a monitor per lock file: the file lock is held by the whole process.
+     *
+     * <p>A tool folder with an install marker whose files still have their recorded sizes and
+     * last-modified times is trusted: neither locked nor hashed nor installed again. The returned
+     * finder knows the recorded tools and calls the installer only when one of them is run.
+     * Checksums of installed files are verified only if the marker is not trusted, like after an
+     * interrupted installation, or if the {@code -Duke.verify} property is set.
+     */
     public ToolFinder install(ToolInstaller installer, String version) throws Exception {
-      var name = installer.name();
-      var folder = Files.createDirectories(configuration.folders().tools(name, version));
-      return installer.install(folder, version);
+      var folder = configuration.folders().tools(installer.name(), version);
+      var future = new CompletableFuture<ToolFinder>();
+      var installation = installations.putIfAbsent(folder.toString(), future);
+      if (installation == null) {
+        installation = future;
+        try {
+          var marker = DukeInstallMarker.load(DukeInstallMarker.file(folder));
+          var trusted =
+              marker
+                  .filter(found -> found.matches(installer, version))
+                  .filter(found -> Files.notExists(DukeInstallMarker.flag(folder)))
+                  .filter(found -> !DukeToolProvider.is("-Duke.verify"))
+                  .filter(found -> found.isIntact(folder, false));
+          future.complete(
+              trusted.isPresent()
+                  ? new Finders.InstalledToolFinder(
+                      trusted.get(), () -> installer.install(folder, version))
+                  : installLocked(installer, version));
+        } catch (Exception | Error throwable) {
+          future.completeExceptionally(throwable);
+        }
+      }
+      try {
+        return installation.join();
+      } catch (CompletionException exception) {
+        var cause = exception.getCause();
+        if (cause instanceof Exception checked) throw checked;
+        if (cause instanceof Error error) throw error;
+        throw exception;
+      }
+    }
+
+    private ToolFinder installLocked(ToolInstaller installer, String version) throws Exception {
+      var folder = configuration.folders().tools(installer.name(), version);
+      var lock = folder.resolveSibling(folder.getFileName() + ".lock");
+      Files.createDirectories(folder.getParent());
+      var options = new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.WRITE};
+      synchronized (LOCKS.computeIfAbsent(lock.toAbsolutePath().normalize(), __ -> new Object())) {
+        try (var channel = FileChannel.open(lock, options)) {
+          channel.lock(); // released by closing the channel
+          return installLocked(installer, version, folder);
+        }
+      }
+    }
+
+    /** Installs a tool while holding the locks of its folder. */
+    private ToolFinder installLocked(ToolInstaller installer, String version, Path folder)
+        throws Exception {
+      var file = DukeInstallMarker.file(folder);
+      var flag = DukeInstallMarker.flag(folder);
+      var marker = DukeInstallMarker.load(file);
+      var name = installer.getClass().getName();
+      if (marker.isPresent()) {
+        var found = marker.get();
+        if (found.matches(installer, version) && found.isIntact(folder, true)) {
+          var verified = found.withModifiedTimes(folder);
+          if (!verified.equals(found)) verified.store(file); // trust the folder next time
+          Callable<ToolFinder> install = () -> installer.install(folder, version);
+          return new Finders.InstalledToolFinder(verified, install);
+        }
+      } else if (Files.exists(folder) && Files.notExists(flag)) {
+        // installed before markers were recorded: adopt the folder, the installer completes it
+        configuration.printer().debug("Recording installation in " + folder);
+        var finder = installer.install(folder, version);
+        DukeInstallMarker.of(name, version, folder, finder).store(file);
+        return finder;
+      }
+      Files.deleteIfExists(file);
+      Files.writeString(flag, version);
+      if (Files.exists(folder)) {
+        configuration.printer().debug("Deleting partial installation in " + folder);
+        try (var stream = Files.walk(folder)) {
+          for (var path : stream.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+        }
+      }
+      Files.createDirectories(folder);
+      var finder = installer.install(folder, version);
+      DukeInstallMarker.of(name, version, folder, finder).store(file);
+      Files.delete(flag);
+      return finder;
     }
   }
 
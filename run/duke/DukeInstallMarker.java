@@ -0,0 +1,175 @@
+package run.duke;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolInstaller;
+import jdk.tools.ToolOperator;
+
+/**
+ * A record of a completed tool installation, stored next to the tool folder.
+ *
+ * <p>A tool folder without an intact marker is considered a partial installation, unless it was
+ * installed before markers were introduced: only folders with an {@linkplain #flag(Path) install
+ * flag} are known to be partial.
+ *
+ * @param installer the class name of the tool installer
+ * @param version the installed version
+ * @param tools the identifiers of all tools found after the installation, {@code name} or {@code
+ *     namespace/name}
+ * @param requires the names of tools required by the installed tools
+ * @param files the installed files, relative to the tool folder
+ */
+record DukeInstallMarker(
+    String installer, String version, List<String> tools, List<String> requires, List<File> files) {
+  /**
+   * An installed file.
+   *
+   * @param modified the last-modified time in milliseconds, or {@code -1} if not recorded
+   */
+  record File(String path, long size, String sha256, long modified) {}
+
+  static Path file(Path folder) {
+    return folder.resolveSibling(folder.getFileName() + ".installed");
+  }
+
+  /** {@return the file flagging an installation in progress into the given folder} */
+  static Path flag(Path folder) {
+    return folder.resolveSibling(folder.getFileName() + ".installing");
+  }
+
+  static DukeInstallMarker of(String installer, String version, Path folder, ToolFinder finder) {
+    var tools = new ArrayList<String>();
+    var requires = new ArrayList<String>();
+    for (var tool : finder.tools()) {
+      var namespace = tool.namespace();
+      tools.add(namespace.isEmpty() ? tool.name() : namespace + '/' + tool.name());
+      if (tool.provider() instanceof ToolOperator operator) requires.addAll(operator.requires());
+    }
+    var files = new ArrayList<File>();
+    try (var stream = Files.walk(folder)) {
+      for (var path : stream.filter(Files::isRegularFile).sorted().toList()) {
+        var relative = folder.relativize(path).toString().replace('\\', '/');
+        var modified = Files.getLastModifiedTime(path).toMillis();
+        files.add(new File(relative, Files.size(path), sha256(path), modified));
+      }
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+    return new DukeInstallMarker(installer, version, tools, requires, files);
+  }
+
+  static Optional<DukeInstallMarker> load(Path file) {
+    if (!Files.isRegularFile(file)) return Optional.empty();
+    try {
+      String installer = null;
+      String version = null;
+      var tools = new ArrayList<String>();
+      var requires = new ArrayList<String>();
+      var files = new ArrayList<File>();
+      for (var line : Files.readAllLines(file)) {
+        var values = line.split("\t", -1);
+        switch (values[0]) {
+          case "installer" -> installer = values[1];
+          case "version" -> version = values[1];
+          case "tool" -> tools.add(values[1]);
+          case "requires" -> requires.add(values[1]);
+          case "file" -> {
+            var modified = values.length > 4 ? Long.parseLong(values[4]) : -1;
+            files.add(new File(values[1], Long.parseLong(values[2]), values[3], modified));
+          }
+          default -> {} // ignore unknown keys
+        }
+      }
+      if (installer == null || version == null) return Optional.empty();
+      return Optional.of(new DukeInstallMarker(installer, version, tools, requires, files));
+    } catch (Exception exception) {
+      return Optional.empty();
+    }
+  }
+
+  static String sha256(Path path) throws Exception {
+    var digest = MessageDigest.getInstance("SHA-256");
+    try (var input = new DigestInputStream(Files.newInputStream(path), digest)) {
+      input.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /** {@return the identifier of the recorded tool with the given name or identifier} */
+  Optional<String> find(String name) {
+    for (var tool : tools) {
+      if (tool.equals(name) || tool.substring(tool.lastIndexOf('/') + 1).equals(name)) {
+        return Optional.of(tool);
+      }
+    }
+    return Optional.empty();
+  }
+
+  boolean matches(ToolInstaller installer, String version) {
+    var name = installer.getClass().getName();
+    return this.installer.equals(name) && this.version.equals(version);
+  }
+
+  /**
+   * Checks whether all recorded files exist in the given folder with their size.
+   *
+   * @param folder the tool folder
+   * @param verify {@code true} to compare the SHA-256 checksums of all files, {@code false} to
+   *     compare their last-modified times instead
+   * @return {@code true} if the folder holds all recorded files
+   */
+  boolean isIntact(Path folder, boolean verify) {
+    try {
+      for (var file : files) {
+        var path = folder.resolve(file.path());
+        if (!Files.isRegularFile(path) || Files.size(path) != file.size()) return false;
+        if (verify && !sha256(path).equals(file.sha256())) return false;
+        if (!verify && Files.getLastModifiedTime(path).toMillis() != file.modified()) return false;
+      }
+      return true;
+    } catch (Exception exception) {
+      return false;
+    }
+  }
+
+  /** {@return a copy of this marker with the current last-modified times of verified files} */
+  DukeInstallMarker withModifiedTimes(Path folder) {
+    var touched = new ArrayList<File>();
+    try {
+      for (var file : files) {
+        var modified = Files.getLastModifiedTime(folder.resolve(file.path())).toMillis();
+        touched.add(new File(file.path(), file.size(), file.sha256(), modified));
+      }
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+    return new DukeInstallMarker(installer, version, tools, requires, touched);
+  }
+
+  void store(Path file) {
+    var lines = new ArrayList<String>();
+    lines.add("installer\t" + installer);
+    lines.add("version\t" + version);
+    tools.forEach(tool -> lines.add("tool\t" + tool));
+    requires.forEach(required -> lines.add("requires\t" + required));
+    for (var f : files) {
+      lines.add(String.join("\t", "file", f.path(), "" + f.size(), f.sha256(), "" + f.modified()));
+    }
+    try {
+      var temp = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.write(temp, lines);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package run.duke;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** Measurements of commands run by a Duke runner. */
+public record DukeMetrics(List<Measurement> measurements) {
+  /**
+   * The measurement of a single command run.
+   *
+   * @param command the description of the command
+   * @param wallNanos the elapsed time in nanoseconds
+   * @param cpuNanos the CPU time of the running thread in nanoseconds, or {@code -1}
+   * @param allocatedBytes the number of bytes allocated by the running thread, or {@code -1}
+   * @param code {@code 0} if the command completed normally, {@code 1} if it failed
+   */
+  public record Measurement(
+      String command, long wallNanos, long cpuNanos, long allocatedBytes, int code) {}
+
+  public static DukeMetrics of() {
+    return new DukeMetrics(new CopyOnWriteArrayList<>());
+  }
+
+  public void add(Measurement measurement) {
+    measurements.add(measurement);
+  }
+
+  public String toTextTable() {
+    var lines = new StringJoiner("\n");
+    lines.add("Metrics");
+    lines.add("%10s %10s %12s %4s  %s".formatted("wall ms", "cpu ms", "KiB", "exit", "command"));
+    for (var measurement : measurements) {
+      lines.add(
+          "%10d %10d %12d %4d  %s"
+              .formatted(
+                  measurement.wallNanos() / 1_000_000,
+                  measurement.cpuNanos() < 0 ? -1 : measurement.cpuNanos() / 1_000_000,
+                  measurement.allocatedBytes() < 0 ? -1 : measurement.allocatedBytes() / 1024,
+                  measurement.code(),
+                  measurement.command()));
+    }
+    return lines.toString();
+  }
+
+  public String toJson() {
+    var elements = new StringJoiner(",\n", "[\n", "\n]\n");
+    for (var measurement : measurements) {
+      elements.add(
+          """
+            {"command": "%s", "wallNanos": %d, "cpuNanos": %d, "allocatedBytes": %d, "code": %d}\
+          """
+              .formatted(
+                  escape(measurement.command()),
+                  measurement.wallNanos(),
+                  measurement.cpuNanos(),
+                  measurement.allocatedBytes(),
+                  measurement.code()));
+    }
+    return elements.toString();
+  }
+
+  /** Writes all measurements to a new JSON file in the given directory. */
+  public Path writeJson(Path directory) {
+    try {
+      Files.createDirectories(directory);
+      var name = Instant.now().toString().replace(':', '-') + ".json";
+      return Files.writeString(directory.resolve(name), toJson());
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  private static String escape(String string) {
+    var builder = new StringBuilder();
+    for (var c : string.toCharArray()) {
+      switch (c) {
+        case '"' -> builder.append("\\\"");
+        case '\\' -> builder.append("\\\\");
+        case '\n' -> builder.append("\\n");
+        case '\r' -> builder.append("\\r");
+        case '\t' -> builder.append("\\t");
+        default -> {
+          if (c < 0x20) builder.append("\\u%04x".formatted((int) c));
+          else builder.append(c);
+        }
+      }
+    }
+    return builder.toString();
+  }
+}
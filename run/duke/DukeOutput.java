@@ -0,0 +1,22 @@
+package run.duke;
+
+import java.io.PrintWriter;
+import java.lang.System.Logger.Level;
+import jdk.tools.ToolPrinter;
+
+/** The output streams and the log level threshold used to create tool printers. */
+public record DukeOutput(PrintWriter out, PrintWriter err, Level threshold) {
+  public static DukeOutput ofSystem() {
+    var out = new PrintWriter(System.out, true);
+    var err = new PrintWriter(System.err, true);
+    return new DukeOutput(out, err, Level.WARNING);
+  }
+
+  public DukeOutput with(PrintWriter out, PrintWriter err) {
+    return new DukeOutput(out, err, threshold);
+  }
+
+  public ToolPrinter toPrinter() {
+    return ToolPrinter.of(out, err).withThreshold(threshold);
+  }
+}
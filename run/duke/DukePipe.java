@@ -0,0 +1,122 @@
+package run.duke;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * A bounded buffer of characters connecting one writing thread with one reading thread.
+ *
+ * <p>The writer blocks while the buffer is full, the reader blocks while it is empty. Closing the
+ * writer signals the end of the stream to the reader, optionally with a failure that is rethrown
+ * once all buffered characters were read. Closing the reader makes all further writes throw an
+ * {@link UncheckedIOException}: unlike an {@link IOException}, it is not swallowed by a {@link
+ * java.io.PrintWriter} wrapping the writer, and so stops a tool writing to it.
+ */
+public final class DukePipe {
+  private final char[] buffer;
+  private int head;
+  private int size;
+  private boolean writerClosed;
+  private boolean readerClosed;
+  private Throwable failure;
+
+  public DukePipe(int capacity) {
+    if (capacity < 1) throw new IllegalArgumentException("capacity < 1: " + capacity);
+    this.buffer = new char[capacity];
+  }
+
+  public Writer writer() {
+    return new Writer() {
+      @Override
+      public void write(char[] chars, int offset, int length) {
+        try {
+          put(chars, offset, length);
+        } catch (IOException exception) {
+          throw new UncheckedIOException(exception);
+        }
+      }
+
+      @Override
+      public void flush() {}
+
+      @Override
+      public void close() {
+        closeWriter(null);
+      }
+    };
+  }
+
+  public Reader reader() {
+    return new Reader() {
+      @Override
+      public int read(char[] chars, int offset, int length) throws IOException {
+        return take(chars, offset, length);
+      }
+
+      @Override
+      public void close() {
+        closeReader();
+      }
+    };
+  }
+
+  /** Signals the end of the stream, with a failure to be rethrown to the reader if non-null. */
+  public synchronized void closeWriter(Throwable failure) {
+    if (writerClosed) return;
+    this.writerClosed = true;
+    this.failure = failure;
+    notifyAll();
+  }
+
+  private synchronized void closeReader() {
+    readerClosed = true;
+    notifyAll();
+  }
+
+  private synchronized void put(char[] chars, int offset, int length) throws IOException {
+    while (length > 0) {
+      if (writerClosed) throw new IOException("Pipe writer closed");
+      if (readerClosed) throw new IOException("Pipe reader closed");
+      if (size == buffer.length) {
+        await();
+        continue;
+      }
+      var tail = (head + size) % buffer.length;
+      var chunk = Math.min(length, Math.min(buffer.length - size, buffer.length - tail));
+      System.arraycopy(chars, offset, buffer, tail, chunk);
+      size += chunk;
+      offset += chunk;
+      length -= chunk;
+      notifyAll();
+    }
+  }
+
+  private synchronized int take(char[] chars, int offset, int length) throws IOException {
+    if (length == 0) return 0;
+    while (size == 0) {
+      if (readerClosed) throw new IOException("Pipe reader closed");
+      if (writerClosed) {
+        if (failure == null) return -1;
+        throw new IOException("Pipe writer failed: " + failure.getMessage(), failure);
+      }
+      await();
+    }
+    var chunk = Math.min(length, Math.min(size, buffer.length - head));
+    System.arraycopy(buffer, head, chars, offset, chunk);
+    head = (head + chunk) % buffer.length;
+    size -= chunk;
+    notifyAll();
+    return chunk;
+  }
+
+  private void await() throws IOException {
+    try {
+      wait();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting on pipe", exception);
+    }
+  }
+}
@@ -1,14 +1,30 @@
 package run.duke;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
+import jdk.tools.Command;
 import jdk.tools.ToolFinder;
 import jdk.tools.ToolPrinter;
 import jdk.tools.ToolRunner;
 
 /** A runner of tools. */
 public final class DukeRunner implements ToolRunner {
+  /** Token separating a command from the command receiving its output lines as arguments. */
+  public static final String PIPE = "+:";
+
   public static DukeRunner of(ToolFinder finder, Record... values) {
     return DukeRunner.of(finder, ToolPrinter.ofSystem(), values);
   }
@@ -44,6 +60,182 @@ public final class DukeRunner implements ToolRunner {
     return with(context().with(finder));
   }
 
+  public DukeRunner with(ToolPrinter printer) {
+    return with(context().with(printer));
+  }
+
+  /**
+   * Runs all commands concurrently and waits for them to complete.
+   *
+   * <p>Output of each command is buffered and printed in command order to the streams of the
+   * {@link DukeOutput} value of this runner.
+   */
+  public void runConcurrently(List<Command> commands) {
+    if (commands.size() <= 1) {
+      for (var command : commands) runCommand(command);
+      return;
+    }
+    var output = value(DukeOutput.class, DukeOutput::ofSystem);
+    var outs = new ArrayList<DukeCapture>();
+    var errs = new ArrayList<DukeCapture>();
+    var futures = new ArrayList<Future<?>>();
+    var executor = Executors.newCachedThreadPool();
+    try {
+      for (var command : commands) {
+        var out = new DukeCapture();
+        var err = new DukeCapture();
+        var printer = output.with(out, err).toPrinter();
+        outs.add(out);
+        errs.add(err);
+        futures.add(executor.submit(() -> with(printer).runCommand(command)));
+      }
+      RuntimeException failure = null;
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException exception) {
+          var cause = exception.getCause();
+          var re = cause instanceof RuntimeException r ? r : new RuntimeException(cause);
+          if (failure == null) failure = re;
+          else failure.addSuppressed(re);
+        }
+        outs.get(i).writeTo(output.out());
+        errs.get(i).writeTo(output.err());
+      }
+      if (failure != null) throw failure;
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(exception);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Runs a command and captures its standard output.
+   *
+   * <p>Error output is written to the error stream of the {@link DukeOutput} value of this runner.
+   */
+  public String capture(Command command) {
+    var output = value(DukeOutput.class, DukeOutput::ofSystem);
+    var out = new DukeCapture();
+    var printer = output.with(out, output.err()).toPrinter();
+    with(printer).runCommand(command);
+    return out.toString();
+  }
+
+  /**
+   * Starts running a command in a background thread and returns a reader of its standard output.
+   *
+   * <p>Output is passed through a {@link DukePipe} of the given capacity: the command blocks while
+   * the reader lags behind. A failure of the command is rethrown by the reader after all output
+   * was read. Closing the reader early makes the next write of the command throw an unchecked
+   * exception, which stops the command unless it catches the exception itself.
+   */
+  public Reader open(Command command, int capacity) {
+    var output = value(DukeOutput.class, DukeOutput::ofSystem);
+    var pipe = new DukePipe(capacity);
+    var out = new PrintWriter(pipe.writer());
+    var printer = output.with(out, output.err()).toPrinter();
+    var thread =
+        new Thread(
+            () -> {
+              try {
+                with(printer).runCommand(command);
+                out.flush();
+                pipe.closeWriter(null);
+              } catch (RuntimeException | Error throwable) {
+                pipe.closeWriter(throwable);
+              }
+            },
+            "duke-pipe");
+    thread.setDaemon(true);
+    thread.start();
+    return pipe.reader();
+  }
+
+  /**
+   * Runs the target command with each non-blank output line of the source command appended as an
+   * argument, similar to {@code xargs}.
+   *
+   * <p>The target command runs after the source command finished, with all lines in memory.
+   */
+  public void pipe(Command source, Command target) {
+    var arguments = new ArrayList<>(target.arguments());
+    try (var reader = new BufferedReader(open(source, 8192))) {
+      for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (line.isBlank()) continue;
+        arguments.add(line.strip());
+      }
+    } catch (IOException exception) {
+      var cause = exception.getCause();
+      throw cause instanceof RuntimeException re ? re : new UncheckedIOException(exception);
+    }
+    runCommand(new Command(target.tool(), arguments));
+  }
+
+  /** Runs all commands in sequence. */
+  public void runAll(List<Command> commands) {
+    for (var command : commands) runCommand(command);
+  }
+
+  /**
+   * Runs a command, or a pipeline of commands if its arguments contain {@value #PIPE} tokens.
+   *
+   * <p>For example, {@code a x +: b y} runs {@code b y} with each output line of {@code a x}
+   * appended as an argument. Pipelines of more than two commands are evaluated from the left.
+   */
+  private void runCommand(Command command) {
+    var arguments = command.arguments();
+    var index = arguments.lastIndexOf(PIPE);
+    if (index >= 0) {
+      if (index == arguments.size() - 1) {
+        throw new IllegalArgumentException("Missing command after " + PIPE + " in: " + command);
+      }
+      var source = new Command(command.tool(), List.copyOf(arguments.subList(0, index)));
+      var tail = List.copyOf(arguments.subList(index + 2, arguments.size()));
+      pipe(source, new Command(arguments.get(index + 1), tail));
+      return;
+    }
+    var metrics = value(DukeMetrics.class);
+    var threads = ManagementFactory.getThreadMXBean();
+    var thread = Thread.currentThread().getId();
+    var wall = System.nanoTime();
+    var cpu = threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+    var allocated = allocatedBytes(threads, thread);
+    var event = DukeEvents.isRecording() ? new DukeEvents.RunCommand() : null;
+    if (event != null) {
+      event.begin();
+      event.command = command.toString();
+    }
+    var successful = false;
+    try {
+      run(command);
+      successful = true;
+    } finally {
+      if (event != null) {
+        event.successful = successful;
+        event.commit();
+      }
+      if (metrics != null) {
+        var code = successful ? 0 : 1;
+        wall = System.nanoTime() - wall;
+        if (cpu >= 0) cpu = threads.getCurrentThreadCpuTime() - cpu;
+        if (allocated >= 0) allocated = allocatedBytes(threads, thread) - allocated;
+        metrics.add(new DukeMetrics.Measurement(command.toString(), wall, cpu, allocated, code));
+      }
+    }
+  }
+
+  private static long allocatedBytes(ThreadMXBean threads, long thread) {
+    if (threads instanceof com.sun.management.ThreadMXBean bean) {
+      if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+        return bean.getThreadAllocatedBytes(thread);
+      }
+    }
+    return -1;
+  }
+
   public DukeContext context() {
     return value(DukeContext.class);
   }
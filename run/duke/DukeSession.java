@@ -0,0 +1,94 @@
+package run.duke;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.spi.ToolProvider;
+import jdk.tools.ToolFinder;
+
+/** A composed tool finder of a configuration, reusable for running many tasks. */
+record DukeSession(
+    DukeConfiguration configuration, ToolFinder finder, List<String> missingToolNames) {
+  /** Runs all initializers concurrently and returns their non-empty finders in load order. */
+  static List<ToolFinder> initializeToolFinders(DukeConfiguration configuration) throws Exception {
+    configuration.printer().debug("Loading initializers...");
+    var loader = ServiceLoader.load(configuration.layer(), DukeInitializer.class);
+    var initializers = new ArrayList<DukeInitializer>();
+    loader.forEach(initializers::add);
+    var helper = new DukeInitializer.Helper(configuration);
+    var finders = new ArrayList<ToolFinder>();
+    if (initializers.size() <= 1) {
+      for (var initializer : initializers) finders.add(initializeToolFinder(initializer, helper));
+    } else {
+      var futures = new ArrayList<Future<ToolFinder>>();
+      var executor = Executors.newCachedThreadPool();
+      try {
+        for (var initializer : initializers) {
+          futures.add(executor.submit(() -> initializeToolFinder(initializer, helper)));
+        }
+        for (var future : futures) finders.add(future.get());
+      } catch (ExecutionException exception) {
+        var cause = exception.getCause();
+        if (cause instanceof Exception checked) throw checked;
+        if (cause instanceof Error error) throw error;
+        throw exception;
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+    finders.removeIf(finder -> Finders.size(finder) == 0);
+    return List.copyOf(finders);
+  }
+
+  private static ToolFinder initializeToolFinder(
+      DukeInitializer initializer, DukeInitializer.Helper helper) throws Exception {
+    if (!DukeEvents.isRecording()) return initializer.initializeToolFinder(helper);
+    var event = new DukeEvents.InstallInitializer();
+    event.begin();
+    event.initializer = initializer.getClass().getName();
+    var initializedFinder = initializer.initializeToolFinder(helper);
+    event.tools = Finders.size(initializedFinder);
+    event.commit();
+    return initializedFinder;
+  }
+
+  static DukeSession of(
+      DukeConfiguration configuration, List<ToolFinder> initializedFinders, DukeTimings timings) {
+    var printer = configuration.printer();
+    var layer = configuration.layer();
+
+    printer.debug("Loading tool finders...");
+    var finderServiceLoader = ServiceLoader.load(layer, ToolFinder.class);
+
+    printer.debug("Loading tool providers...");
+    var providerServiceLoader = ServiceLoader.load(layer, ToolProvider.class);
+    var catalog = DukeCatalog.of(configuration.folders(), layer, providerServiceLoader);
+
+    var servicedFinder = Finders.newToolFinderOfFinders(finderServiceLoader, __ -> true);
+    var otherFinder = ToolFinder.compose(ToolFinder.compose(initializedFinders), servicedFinder);
+    var menu = new DukeMenu();
+    var finder =
+        ToolFinder.compose(
+            otherFinder,
+            Finders.newToolFinderOfCatalog(providerServiceLoader, __ -> true, catalog),
+            menu);
+    timings.mark("finders");
+
+    var requiredToolNames = new ArrayList<String>();
+    for (var each : initializedFinders) requiredToolNames.addAll(Finders.requires(each));
+    requiredToolNames.addAll(Finders.requires(servicedFinder));
+    for (var entry : catalog.entries()) requiredToolNames.addAll(entry.requires());
+    requiredToolNames.addAll(Finders.requires(menu));
+    var missingToolNames = new ArrayList<String>();
+    for (var required : requiredToolNames) {
+      if (finder.find(required).isPresent()) continue;
+      missingToolNames.add(required);
+    }
+    timings.mark("requires");
+
+    return new DukeSession(configuration, finder, List.copyOf(missingToolNames));
+  }
+}
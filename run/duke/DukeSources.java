@@ -1,17 +1,32 @@
 package run.duke;
 
+import java.io.File;
 import java.lang.module.ModuleFinder;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 import jdk.tools.Command;
 import jdk.tools.Tool;
 
 record DukeSources(ModuleLayer layer) {
+  private static final Pattern REQUIRES_PATTERN =
+      Pattern.compile("\\brequires\\s+(?:(?:transitive|static)\\s+)*([\\w.]+)\\s*;");
+
   public static DukeSources of(DukeFolders folders) {
     var parentLayer = DukeSources.class.getModule().getLayer();
     var parentLoader = DukeSources.class.getClassLoader();
@@ -44,21 +59,283 @@ record DukeSources(ModuleLayer layer) {
     var classes = folders.tmp("sources", "classes-" + version.feature());
     var modules = findModulesPath().orElseGet(folders::src);
 
+    var salt = version + "|" + (modules.equals(sources) ? "" : DukeFingerprints.describe(modules));
+    var compilation = compileChangedModules(sources, modules, classes, roots, salt);
+
+    var beforeFinder =
+        DukeToolProvider.is("-Duke.sources.jars")
+            ? ModuleFinder.of(packageModules(folders, classes, roots, compilation.fingerprints()))
+            : ModuleFinder.of(classes); // classes-N of this layer
+    var afterFinder = ModuleFinder.of(modules); // library folder with "run.duke"
+    var event = DukeEvents.isRecording() ? new DukeEvents.ResolveLayer() : null;
+    if (event != null) {
+      event.begin();
+      event.roots = String.join(",", roots);
+    }
+    var parentConfiguration = parentLayer.configuration();
+    var newConfiguration = parentConfiguration.resolveAndBind(beforeFinder, afterFinder, roots);
+    var layer = parentLayer.defineModulesWithOneLoader(newConfiguration, parentLoader);
+    if (event != null) event.commit();
+    return layer;
+  }
+
+  /**
+   * The result of compiling changed modules.
+   *
+   * @param compiled the names of the modules compiled, empty if all classes were up-to-date
+   * @param fingerprints the current fingerprints of all root modules
+   */
+  record Compilation(Set<String> compiled, Map<String, String> fingerprints) {}
+
+  /**
+   * Compiles root modules with changed sources and all modules depending on them.
+   *
+   * <p>Fingerprints and stamps of the last successful compilation are stored next to the classes
+   * directory. The salt is mixed into all of them: a changed salt recompiles all modules.
+   */
+  static Compilation compileChangedModules(
+      Path sources, Path modules, Path classes, List<String> roots, String salt) {
+    var fingerprintsFile = classes.resolveSibling(classes.getFileName() + ".txt");
+    var fingerprints = DukeFingerprints.load(fingerprintsFile);
+    var currentFingerprints = new TreeMap<String, String>();
+    var currentStamps = new TreeMap<String, String>();
+    for (var root : roots) {
+      var directory = sources.resolve(root);
+      var stamp = DukeFingerprints.stamp(directory, salt);
+      var fingerprint =
+          fingerprints
+              .find(root, stamp)
+              .orElseGet(() -> DukeFingerprints.compute(directory, salt));
+      currentFingerprints.put(root, fingerprint);
+      currentStamps.put(root, stamp);
+    }
+    var changed = new TreeSet<String>();
+    for (var root : roots) {
+      if (fingerprints.matches(root, currentFingerprints.get(root))
+          && Files.isDirectory(classes.resolve(root))) continue;
+      changed.add(root);
+    }
+    changed.addAll(computeDependentModuleNames(sources, roots, changed));
+    deleteStaleModuleDirectories(classes, roots, changed);
+
+    if (!changed.isEmpty()) {
+      compileModules(sources, modules, classes, changed);
+    }
+    if (!changed.isEmpty() || !currentStamps.equals(fingerprints.stamps())) {
+      fingerprints.with(currentFingerprints, currentStamps).store();
+    }
+    return new Compilation(Set.copyOf(changed), Map.copyOf(currentFingerprints));
+  }
+
+  /** Compiles the given modules, kept apart to not touch the compiler on up-to-date layers. */
+  static void compileModules(Path sources, Path modules, Path classes, Set<String> names) {
+    var parallel = DukeToolProvider.is("-Duke.parallel-compile");
+    var event = DukeEvents.isRecording() ? new DukeEvents.CompileSources() : null;
+    if (event != null) {
+      event.begin();
+      event.modules = String.join(",", names);
+      event.parallel = parallel;
+    }
+    if (parallel) {
+      compileModulesInWaves(sources, modules, classes, names);
+    } else {
+      var command =
+          Command.of("javac")
+              .with("--module", String.join(",", names))
+              .with("--module-source-path", sources)
+              .with("--module-path", modules)
+              .with("-implicit:none")
+              .with("-d", classes);
+      var runner = DukeRunner.of(Tool.of("javac"));
+      runner.run(command);
+    }
+    if (event != null) event.commit();
+  }
+
+  /**
+   * Compiles each module in single-module mode, running independent modules concurrently.
+   *
+   * <p>A wave consists of all modules whose required modules are already compiled. Only output
+   * directories of modules compiled in previous waves, or left untouched as being up-to-date, are
+   * put on the {@code --module-path} of later waves: directories of modules being written by the
+   * current wave are never visible to a concurrent compilation.
+   */
+  static void compileModulesInWaves(Path sources, Path modules, Path classes, Set<String> names) {
+    var requires = new TreeMap<String, Set<String>>();
+    for (var name : names) requires.put(name, computeRequiredModuleNames(sources.resolve(name)));
+    var threads = Math.min(names.size(), Runtime.getRuntime().availableProcessors());
+    var executor = Executors.newFixedThreadPool(threads);
+    try {
+      var finished = new TreeSet<>(computeModuleDirectoryNames(classes));
+      finished.removeAll(names);
+      var pending = new TreeSet<>(names);
+      while (!pending.isEmpty()) {
+        var wave = new ArrayList<String>();
+        for (var name : pending) {
+          if (requires.get(name).stream().noneMatch(pending::contains)) wave.add(name);
+        }
+        if (wave.isEmpty()) throw new IllegalStateException("Cyclic modules: " + pending);
+        var path = computeModulePath(modules, classes, finished);
+        var futures = new ArrayList<Future<?>>();
+        for (var name : wave) {
+          futures.add(executor.submit(() -> compileModule(sources, path, classes, name)));
+        }
+        for (var future : futures) future.get();
+        wave.forEach(pending::remove);
+        finished.addAll(wave);
+      }
+    } catch (ExecutionException exception) {
+      var cause = exception.getCause();
+      throw (cause instanceof RuntimeException re) ? re : new RuntimeException(cause);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(exception);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  static String computeModulePath(Path modules, Path classes, Set<String> finished) {
+    var elements = new ArrayList<String>();
+    elements.add(modules.toString());
+    for (var name : finished) elements.add(classes.resolve(name).toString());
+    return String.join(File.pathSeparator, elements);
+  }
+
+  static List<String> computeModuleDirectoryNames(Path classes) {
+    if (!Files.isDirectory(classes)) return List.of();
+    var names = new TreeSet<String>();
+    try (var directories = Files.newDirectoryStream(classes, Files::isDirectory)) {
+      for (var directory : directories) names.add(directory.getFileName().toString());
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+    return List.copyOf(names);
+  }
+
+  static void compileModule(Path sources, String modulePath, Path classes, String name) {
     var command =
         Command.of("javac")
-            .with("--module", String.join(",", roots))
-            .with("--module-source-path", sources)
-            .with("--module-path", modules)
+            .with("--module-path", modulePath)
             .with("-implicit:none")
-            .with("-d", classes);
+            .with("-d", classes.resolve(name));
+    try (var stream = Files.walk(sources.resolve(name))) {
+      var units = stream.filter(path -> path.toString().endsWith(".java")).sorted().toList();
+      for (var unit : units) command = command.with(unit.toString());
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
     var runner = DukeRunner.of(Tool.of("javac"));
     runner.run(command);
+  }
 
-    var beforeFinder = ModuleFinder.of(classes); // classes-N of this layer
-    var afterFinder = ModuleFinder.of(modules); // library folder with "run.duke"
-    var parentConfiguration = parentLayer.configuration();
-    var newConfiguration = parentConfiguration.resolveAndBind(beforeFinder, afterFinder, roots);
-    return parentLayer.defineModulesWithOneLoader(newConfiguration, parentLoader);
+  /**
+   * Packages compiled modules into modular JAR files stored in {@code .duke/bin/sources}.
+   *
+   * <p>The name of each JAR file contains a key computed from the fingerprints of the module and
+   * of all modules it requires from the same source folder. Existing JAR files with a matching key
+   * are reused as-is, JAR files of the same module with other keys are deleted.
+   */
+  static Path[] packageModules(
+      DukeFolders folders, Path classes, List<String> roots, Map<String, String> fingerprints) {
+    var directory = folders.bin().resolve("sources");
+    var jars = new ArrayList<Path>();
+    try {
+      Files.createDirectories(directory);
+      for (var root : roots) {
+        var key = computePackageKey(folders.src(), root, fingerprints);
+        var jar = directory.resolve(root + '@' + key + ".jar");
+        jars.add(jar);
+        try (var stream = Files.newDirectoryStream(directory, root + "@*.jar")) {
+          for (var stale : stream) if (!stale.equals(jar)) Files.deleteIfExists(stale);
+        }
+        if (Files.isRegularFile(jar)) continue;
+        var temp = directory.resolve(root + '@' + key + ".jar.tmp");
+        var command =
+            Command.of("jar")
+                .with("--create")
+                .with("--file", temp)
+                .with("--module-version", "0+" + key)
+                .with("-C", classes.resolve(root))
+                .with(".");
+        Files.deleteIfExists(temp);
+        DukeRunner.of(Tool.of("jar")).run(command);
+        Files.move(temp, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+    return jars.toArray(Path[]::new);
+  }
+
+  static String computePackageKey(Path sources, String root, Map<String, String> fingerprints) {
+    var names = new TreeSet<String>();
+    var pending = new ArrayList<>(List.of(root));
+    while (!pending.isEmpty()) {
+      var name = pending.remove(pending.size() - 1);
+      if (!names.add(name)) continue;
+      for (var required : computeRequiredModuleNames(sources.resolve(name))) {
+        if (fingerprints.containsKey(required)) pending.add(required);
+      }
+    }
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      for (var name : names) digest.update((name + '=' + fingerprints.get(name) + '\n').getBytes());
+      return HexFormat.of().formatHex(digest.digest(), 0, 8);
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  /** {@return names of modules requiring a changed module}, reading no file if none changed */
+  static Set<String> computeDependentModuleNames(
+      Path sources, List<String> roots, Set<String> changed) {
+    if (changed.isEmpty()) return Set.of();
+    var requires = new TreeMap<String, Set<String>>();
+    for (var root : roots) {
+      requires.put(root, computeRequiredModuleNames(sources.resolve(root)));
+    }
+    var dependents = new TreeSet<String>();
+    var modified = new TreeSet<>(changed);
+    while (true) {
+      var next = new TreeSet<String>();
+      requires.forEach(
+          (name, required) -> {
+            if (modified.contains(name)) return;
+            if (required.stream().anyMatch(modified::contains)) next.add(name);
+          });
+      if (next.isEmpty()) return dependents;
+      dependents.addAll(next);
+      modified.addAll(next);
+    }
+  }
+
+  static Set<String> computeRequiredModuleNames(Path module) {
+    var unit = module.resolve("module-info.java");
+    try {
+      var text = Files.readString(unit).replaceAll("(?s)/\\*.*?\\*/|//[^\n]*", " ");
+      var names = new TreeSet<String>();
+      var matcher = REQUIRES_PATTERN.matcher(text);
+      while (matcher.find()) names.add(matcher.group(1));
+      return names;
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  static void deleteStaleModuleDirectories(Path classes, List<String> roots, Set<String> changed) {
+    if (!Files.isDirectory(classes)) return;
+    try (var directories = Files.newDirectoryStream(classes, Files::isDirectory)) {
+      for (var directory : directories) {
+        var name = directory.getFileName().toString();
+        if (roots.contains(name) && !changed.contains(name)) continue;
+        try (var stream = Files.walk(directory)) {
+          for (var path : stream.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+        }
+      }
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
   }
 
   static Optional<Path> findModulesPath() {
@@ -0,0 +1,64 @@
+package run.duke;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Durations of consecutive startup phases of a duke run.
+ *
+ * <p>Phase durations are printed in verbose mode, and appended to {@code .duke/tmp/startup.csv}
+ * only if property {@code -Duke.timings} is set.
+ */
+final class DukeTimings {
+  private final long start;
+  private final Map<String, Long> phases;
+  private long last;
+
+  DukeTimings() {
+    this.start = System.nanoTime();
+    this.phases = new LinkedHashMap<>();
+    this.last = start;
+  }
+
+  /** Records the time elapsed since the previous mark as the duration of the named phase. */
+  void mark(String phase) {
+    var now = System.nanoTime();
+    phases.put(phase, now - last);
+    last = now;
+  }
+
+  String toTextBlock() {
+    var lines = new StringJoiner("\n");
+    lines.add("Startup");
+    phases.forEach((phase, nanos) -> lines.add("%8d ms %s".formatted(nanos / 1_000_000, phase)));
+    lines.add("%8d ms total".formatted((last - start) / 1_000_000));
+    return lines.toString();
+  }
+
+  /** Appends a line of phase durations in microseconds to a CSV file. */
+  void appendTo(Path file) {
+    var header = new StringJoiner(",", "", "\n").add("timestamp").add("java");
+    var values = new StringJoiner(",", "", "\n").add(Instant.now().toString());
+    values.add(Runtime.version().toString());
+    phases.forEach(
+        (phase, nanos) -> {
+          header.add(phase);
+          values.add(String.valueOf(nanos / 1_000));
+        });
+    header.add("total");
+    values.add(String.valueOf((last - start) / 1_000));
+    try {
+      var parent = file.getParent();
+      if (parent != null) Files.createDirectories(parent);
+      if (Files.notExists(file)) Files.writeString(file, header.toString());
+      Files.writeString(file, values.toString(), StandardOpenOption.APPEND);
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+}
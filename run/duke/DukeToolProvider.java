@@ -2,19 +2,23 @@ package run.duke;
 
 import java.io.PrintWriter;
 import java.lang.System.Logger.Level;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.ServiceLoader;
 import java.util.StringJoiner;
+import java.util.function.Predicate;
 import java.util.spi.ToolProvider;
 import jdk.tools.Task;
 import jdk.tools.Tool;
 import jdk.tools.ToolFinder;
-import jdk.tools.ToolOperator;
-import jdk.tools.ToolPrinter;
 import jdk.tools.Tools;
 
 public record DukeToolProvider(String name) implements ToolProvider {
+  /** Separates stages of commands; with {@code -Duke.parallel} each stage runs concurrently. */
+  static final String BARRIER = "++";
+
   public DukeToolProvider() {
     this("duke");
   }
@@ -22,54 +26,104 @@ public record DukeToolProvider(String name) implements ToolProvider {
   @Override
   public int run(PrintWriter out, PrintWriter err, String... args) {
     var verbose = is("-Duke.verbose") || is("-Debug");
-    var printer = ToolPrinter.of(out, err).withThreshold(verbose ? Level.DEBUG : Level.WARNING);
+    var timings = new DukeTimings();
+    var output = new DukeOutput(out, err, verbose ? Level.DEBUG : Level.WARNING);
     var folders = DukeFolders.ofCurrentWorkingDirectory();
+    if (args.length > 0 && args[0].equals("--version")) {
+      var descriptor = getClass().getModule().getDescriptor();
+      var version = descriptor == null ? null : descriptor.rawVersion().orElse(null);
+      out.println(name + ' ' + (version == null ? "unknown" : version));
+      return ErrorCode.zero();
+    }
+    if (args.length > 0 && args[0].equals("--daemon")) {
+      return new DukeDaemon(folders, output).serve();
+    }
+    if (args.length > 0 && args[0].equals("--watch")) {
+      return watch(folders, output, Arrays.copyOfRange(args, 1, args.length));
+    }
+    if (!is("-Duke.no-daemon")) {
+      var code = DukeDaemon.runRemotely(folders, out, err, args);
+      if (code.isPresent()) return code.getAsInt();
+    }
+    return run(folders, output, timings, args);
+  }
+
+  /**
+   * Runs the tools given by the arguments and re-runs them after each change of files.
+   *
+   * <p>Changes in {@code .duke/src} and below the project root are watched, except for changes in
+   * {@code .git} and in the {@code bin}, {@code out}, and {@code tmp} folders of {@code .duke}.
+   * Changes seen while the tools run, and within a quiet period after the run, are ignored: they
+   * are usually files written by the tools, like {@code jar --create --file lib/x.jar}, which
+   * would trigger the next run in an endless loop. Files edited during a run need to be saved
+   * again to trigger a run. Each run rebuilds the session in this JVM, recompiling only changed
+   * extension modules.
+   */
+  static int watch(DukeFolders folders, DukeOutput output, String... args) {
+    var printer = output.toPrinter();
+    var excludes =
+        List.of(
+            folders.root().resolve(".git"),
+            folders.bin(),
+            folders.dot().resolve("out"),
+            folders.tmp());
+    Predicate<Path> exclude = path -> excludes.stream().anyMatch(path::startsWith);
+    try (var watcher = new DukeWatcher(exclude, folders.src(), folders.root())) {
+      while (true) {
+        try {
+          var code = run(folders, output, new DukeTimings(), args);
+          if (code != 0) output.err().println("Run finished with exit code " + code);
+        } catch (RuntimeException exception) {
+          ErrorCode.TASK_ERROR.describe(output.err(), exception);
+        }
+        output.err().flush();
+        printer.debug("Ignored changes: " + watcher.poll(Duration.ofMillis(200)));
+        output.out().println("Watching for changes... press Ctrl+C to stop");
+        output.out().flush();
+        var changes = watcher.await(Duration.ofMillis(200));
+        printer.debug("Changed: " + changes);
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      return ErrorCode.zero();
+    }
+  }
+
+  /** Builds a session in this JVM and runs the tools given by the arguments. */
+  static int run(DukeFolders folders, DukeOutput output, DukeTimings timings, String... args) {
+    var err = output.err();
+    var printer = output.toPrinter();
     var sources = DukeSources.of(folders);
+    timings.mark("sources");
 
     var configuration = DukeConfiguration.of(printer, folders, sources);
     printer.debug(configuration.toTextBlock());
 
-    printer.debug("Loading initializers...");
-    var initializerServiceLoader = ServiceLoader.load(sources.layer(), DukeInitializer.class);
-    var initializedFinders = new ArrayList<ToolFinder>();
+    List<ToolFinder> initializedFinders;
     try {
-      var helper = new DukeInitializer.Helper(configuration);
-      for (var initializer : initializerServiceLoader) {
-        var initializedFinder = initializer.initializeToolFinder(helper);
-        if (initializedFinder.tools().isEmpty()) continue;
-        initializedFinders.add(initializedFinder);
-      }
+      initializedFinders = DukeSession.initializeToolFinders(configuration);
     } catch (Exception exception) {
       return ErrorCode.TOOL_INSTALLATION_ERROR.describe(err, exception);
     }
+    timings.mark("initializers");
 
-    printer.debug("Loading tool finders...");
-    var finderServiceLoader = ServiceLoader.load(sources.layer(), ToolFinder.class);
-
-    printer.debug("Loading tool providers...");
-    var providerServiceLoader = ServiceLoader.load(sources.layer(), ToolProvider.class);
-
-    var finder =
-        ToolFinder.compose(
-            ToolFinder.compose(initializedFinders),
-            Finders.newToolFinderOfFinders(finderServiceLoader, __ -> true),
-            Finders.newToolFinderOfProviders(providerServiceLoader, __ -> true),
-            new DukeMenu());
-
-    var runner = DukeRunner.of(finder, printer);
-    var tools = finder.tools();
-    printer.debug(toToolsMessage(tools));
-
-    var missingToolNames = new ArrayList<String>();
-    for (var tool : tools) {
-      var provider = tool.provider();
-      if (provider instanceof ToolOperator operator) {
-        for (var required : operator.requires()) {
-          if (finder.find(required).isPresent()) continue;
-          missingToolNames.add(required);
-        }
-      }
-    }
+    var session = DukeSession.of(configuration, initializedFinders, timings);
+    return run(session, output, timings, args);
+  }
+
+  /** Runs the tools given by the arguments using the tool finder of the session. */
+  static int run(DukeSession session, DukeOutput output, DukeTimings timings, String... args) {
+    var out = output.out();
+    var err = output.err();
+    var verbose = output.threshold() == Level.DEBUG;
+    var printer = output.toPrinter();
+    var folders = session.configuration().folders();
+    var finder = session.finder();
+    var metrics = DukeMetrics.of();
+    var runner = DukeRunner.of(finder, printer, output, folders, metrics);
+    if (verbose) printer.debug(toToolsMessage(finder.tools()));
+
+    var missingToolNames = session.missingToolNames();
     if (!missingToolNames.isEmpty()) {
       return ErrorCode.REQUIRED_TOOL_NOT_PRESENT_ERROR.describe(err, missingToolNames.toString());
     }
@@ -78,27 +132,60 @@ public record DukeToolProvider(String name) implements ToolProvider {
       out.println("Usage: duke [options] <tool> [args...]");
       out.println();
       out.println("Options include:");
-      out.println("    none (yet)");
+      out.println("    --daemon   Keep running and serve tasks of other duke invocations");
+      out.println("    --version  Print the version of duke and exit");
+      out.println("    --watch    Run the given tools again after each change of files,");
+      out.println("               ignoring changes made while the tools run");
+      out.println();
+      out.println("Commands are separated by +, stages of commands by " + BARRIER + ".");
+      out.println("A command followed by " + DukeRunner.PIPE + " passes its output lines");
+      out.println("as arguments to the next command.");
       if (!verbose) {
         out.println();
-        out.println(toToolsMessage(tools));
+        out.println(toToolsMessage(finder.tools()));
       }
       return ErrorCode.zero();
     }
 
-    var task = Task.of("run.duke", "<main>", args);
-    var size = task.commands().size();
+    var stages = toTaskStages(args);
+    var size = stages.stream().mapToInt(stage -> stage.commands().size()).sum();
+    printer.debug(timings.toTextBlock());
+    if (is("-Duke.timings")) timings.appendTo(folders.tmp("startup.csv"));
     printer.debug("Run %d main command%s...".formatted(size, size == 1 ? "" : "s"));
     if (is("-Duke.dry-run") || is("-Dry-run")) {
       printer.debug("Dry-run activated. END OF LINE.");
       return ErrorCode.zero();
     }
-    for (var command : task.commands()) {
-      runner.run(command);
+    var parallel = is("-Duke.parallel");
+    try {
+      for (var stage : stages) {
+        if (parallel) runner.runConcurrently(stage.commands());
+        else runner.runAll(stage.commands());
+      }
+    } finally {
+      printer.debug(metrics.toTextTable());
+      if (is("-Duke.metrics")) metrics.writeJson(folders.tmp("metrics"));
     }
     return ErrorCode.zero();
   }
 
+  /**
+   * Splits the arguments into tasks at each {@value #BARRIER} barrier token.
+   *
+   * <p>{@value DukeRunner#PIPE} tokens are kept in the arguments of commands, the runner connects
+   * the commands they separate.
+   */
+  static List<Task> toTaskStages(String... args) {
+    var stages = new ArrayList<Task>();
+    var from = 0;
+    for (int i = 0; i <= args.length; i++) {
+      if (i < args.length && !args[i].equals(BARRIER)) continue;
+      if (i > from) stages.add(Task.of("run.duke", "<main>", Arrays.copyOfRange(args, from, i)));
+      from = i + 1;
+    }
+    return List.copyOf(stages);
+  }
+
   static boolean is(String key) {
     var name = key.startsWith("-D") ? key.substring(2) : key;
     var value = System.getProperty(name, "false");
@@ -116,7 +203,8 @@ public record DukeToolProvider(String name) implements ToolProvider {
   enum ErrorCode {
     ZERO,
     TOOL_INSTALLATION_ERROR,
-    REQUIRED_TOOL_NOT_PRESENT_ERROR;
+    REQUIRED_TOOL_NOT_PRESENT_ERROR,
+    TASK_ERROR;
 
     static int zero() {
       return ZERO.ordinal();
@@ -0,0 +1,109 @@
+package run.duke;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/** Watches directory trees for changes of files. */
+final class DukeWatcher implements AutoCloseable {
+  private final WatchService service;
+  private final Predicate<Path> exclude;
+  private final Map<WatchKey, Path> directories;
+
+  DukeWatcher(Predicate<Path> exclude, Path... roots) {
+    try {
+      this.service = roots[0].getFileSystem().newWatchService();
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+    this.exclude = exclude;
+    this.directories = new ConcurrentHashMap<>();
+    for (var root : roots) register(root);
+  }
+
+  private void register(Path root) {
+    if (!Files.isDirectory(root) || exclude.test(root)) return;
+    try (var stream = Files.walk(root)) {
+      for (var directory : stream.filter(Files::isDirectory).toList()) {
+        if (exclude.test(directory)) continue;
+        var key = directory.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        directories.put(key, directory);
+      }
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  /**
+   * Waits for changes and returns them after no further change was seen for the quiet period.
+   *
+   * @param quietPeriod the duration without events that ends a burst of events
+   * @return the set of changed paths, never empty
+   */
+  Set<Path> await(Duration quietPeriod) throws InterruptedException {
+    var changes = new TreeSet<Path>();
+    while (changes.isEmpty()) {
+      var key = service.take();
+      while (key != null) {
+        process(key, changes);
+        key = service.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS);
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Returns the changes seen so far, including those arriving until no change was seen for the
+   * quiet period.
+   *
+   * @param quietPeriod the duration without events that ends a burst of events
+   * @return the set of changed paths, possibly empty
+   */
+  Set<Path> poll(Duration quietPeriod) throws InterruptedException {
+    var changes = new TreeSet<Path>();
+    var key = service.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS);
+    while (key != null) {
+      process(key, changes);
+      key = service.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    return changes;
+  }
+
+  private void process(WatchKey key, Set<Path> changes) {
+    var directory = directories.get(key);
+    for (var event : key.pollEvents()) {
+      if (directory == null) continue;
+      if (event.kind() == OVERFLOW) {
+        changes.add(directory);
+        continue;
+      }
+      var path = directory.resolve((Path) event.context());
+      if (exclude.test(path)) continue;
+      changes.add(path);
+      if (event.kind() == ENTRY_CREATE) register(path);
+    }
+    if (!key.reset()) directories.remove(key);
+  }
+
+  @Override
+  public void close() {
+    try {
+      service.close();
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+}
@@ -1,10 +1,20 @@
 package run.duke;
 
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.spi.ToolProvider;
 import jdk.tools.Tool;
 import jdk.tools.ToolFinder;
+import jdk.tools.ToolOperator;
+import jdk.tools.ToolRunner;
 
 class Finders {
   static ToolFinder newToolFinderOfFinders(
@@ -19,13 +29,177 @@ class Finders {
 
   static ToolFinder newToolFinderOfProviders(
       ServiceLoader<ToolProvider> loader, Predicate<Module> include) {
-    var tools =
-        loader.stream()
-            .filter(provider -> include.test(provider.type().getModule()))
-            .map(ServiceLoader.Provider::get)
-            .map(Tool::of)
-            .toList();
-    return ToolFinder.of(tools);
+    return newToolFinderOfCatalog(loader, include, new DukeCatalog(List.of()));
+  }
+
+  static ToolFinder newToolFinderOfCatalog(
+      ServiceLoader<ToolProvider> loader, Predicate<Module> include, DukeCatalog catalog) {
+    var providers =
+        loader.stream().filter(provider -> include.test(provider.type().getModule())).toList();
+    return new LazyToolFinder(providers, catalog);
+  }
+
+  /**
+   * A tool finder that instantiates tool providers on demand and memoizes all lookups.
+   *
+   * <p>A catalog listing exactly the given providers is trusted: names not found in it are
+   * reported as missing without instantiating any provider. A missing or stale catalog leads to a
+   * scan of all providers.
+   */
+  static final class LazyToolFinder implements ToolFinder {
+    private final List<ServiceLoader.Provider<ToolProvider>> providers;
+    private final DukeCatalog catalog;
+    private final boolean trusted;
+    private final Map<ServiceLoader.Provider<ToolProvider>, Tool> instances;
+    private final Map<String, Optional<Tool>> results;
+
+    LazyToolFinder(List<ServiceLoader.Provider<ToolProvider>> providers, DukeCatalog catalog) {
+      this.providers = providers;
+      this.catalog = catalog;
+      this.trusted = isCatalogOf(catalog, providers);
+      this.instances = new ConcurrentHashMap<>();
+      this.results = new ConcurrentHashMap<>();
+    }
+
+    static boolean isCatalogOf(
+        DukeCatalog catalog, List<ServiceLoader.Provider<ToolProvider>> providers) {
+      if (catalog.entries().isEmpty()) return false;
+      var expected = new TreeSet<String>();
+      for (var provider : providers) expected.add(provider.type().getName());
+      var actual = new TreeSet<String>();
+      for (var entry : catalog.entries()) actual.add(entry.provider());
+      return expected.equals(actual);
+    }
+
+    @Override
+    public List<Tool> tools() {
+      return providers.stream().map(this::tool).toList();
+    }
+
+    @Override
+    public Optional<Tool> find(String name) {
+      if (!DukeEvents.isRecording()) return results.computeIfAbsent(name, this::lookup);
+      var event = new DukeEvents.LookupTool();
+      event.begin();
+      event.name = name;
+      var result = results.computeIfAbsent(name, this::lookup);
+      event.found = result.isPresent();
+      event.commit();
+      return result;
+    }
+
+    private Optional<Tool> lookup(String name) {
+      if (trusted) {
+        var entry = catalog.find(name);
+        if (entry.isEmpty()) return Optional.empty();
+        for (var provider : providers) {
+          if (!provider.type().getName().equals(entry.get().provider())) continue;
+          var tool = tool(provider);
+          if (tool.name().equals(name)) return Optional.of(tool);
+        }
+      }
+      for (var provider : providers) {
+        var tool = tool(provider);
+        if (tool.name().equals(name)) return Optional.of(tool);
+      }
+      return Optional.empty();
+    }
+
+    int instances() {
+      return instances.size();
+    }
+
+    private Tool tool(ServiceLoader.Provider<ToolProvider> provider) {
+      return instances.computeIfAbsent(provider, __ -> Tool.of(provider.get()));
+    }
+  }
+
+  /**
+   * A tool finder of an installation that runs its installer on demand.
+   *
+   * <p>Recorded tools are found without running the installer: it runs when one of them is run.
+   */
+  static final class InstalledToolFinder implements ToolFinder {
+    private final DukeInstallMarker marker;
+    private final Callable<ToolFinder> installer;
+    private ToolFinder installed;
+
+    InstalledToolFinder(DukeInstallMarker marker, Callable<ToolFinder> installer) {
+      this.marker = marker;
+      this.installer = installer;
+    }
+
+    @Override
+    public List<Tool> tools() {
+      return marker.tools().stream().<Tool>map(id -> new InstalledTool(id, this)).toList();
+    }
+
+    @Override
+    public Optional<Tool> find(String name) {
+      return marker.find(name).map(id -> new InstalledTool(id, this));
+    }
+
+    private synchronized ToolFinder installed() {
+      if (installed == null) {
+        try {
+          installed = installer.call();
+        } catch (Exception exception) {
+          throw new RuntimeException(exception);
+        }
+      }
+      return installed;
+    }
+  }
+
+  /** A recorded tool delegating its runs to the tool provided by the installer. */
+  private record InstalledTool(String id, InstalledToolFinder finder) implements ToolOperator {
+    @Override
+    public String name() {
+      return id.substring(id.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public String namespace() {
+      return id.substring(0, Math.max(0, id.lastIndexOf('/')));
+    }
+
+    @Override
+    public int run(PrintWriter out, PrintWriter err, String... args) {
+      return installed().run(out, err, args);
+    }
+
+    @Override
+    public int run(ToolRunner runner, PrintWriter out, PrintWriter err, String... args) {
+      var provider = installed();
+      if (provider instanceof ToolOperator operator) return operator.run(runner, out, err, args);
+      return provider.run(out, err, args);
+    }
+
+    private ToolProvider installed() {
+      for (var tool : finder.installed().tools()) {
+        if (tool.name().equals(name()) && tool.namespace().equals(namespace())) {
+          return tool.provider();
+        }
+      }
+      throw new IllegalStateException("Tool " + id + " not provided by installer");
+    }
+  }
+
+  /** {@return the number of tools of the given finder, without installing recorded tools} */
+  static int size(ToolFinder finder) {
+    if (finder instanceof InstalledToolFinder installed) return installed.marker.tools().size();
+    return finder.tools().size();
+  }
+
+  /** {@return the names of tools required by the given finder's tools} */
+  static List<String> requires(ToolFinder finder) {
+    if (finder instanceof InstalledToolFinder installed) return installed.marker.requires();
+    var requires = new ArrayList<String>();
+    for (var tool : finder.tools()) {
+      var provider = tool.provider();
+      if (provider instanceof ToolOperator operator) requires.addAll(operator.requires());
+    }
+    return List.copyOf(requires);
   }
 
   private Finders() {}
@@ -3,9 +3,24 @@ package run.duke;
 import static java.lang.System.err;
 import static java.lang.System.out;
 
+import java.io.File;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.spi.ToolProvider;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /** Duke's initialization program. */
 class Init {
@@ -42,37 +57,245 @@ class Init {
     var archiveFilename = Path.of(init("archive-filename", module + ".jar"));
     var moduleSourcePath = init("module-source-path", ".duke/src");
     var classesDirectory = Path.of(".duke", "tmp", "init", "classes-" + release);
-    runToolProvider(
-        "javac",
-        "--module=jdk.tools,run.duke",
-        "--module-source-path=" + moduleSourcePath,
-        "--release=" + release,
-        "-d",
-        classesDirectory.toString());
-    runToolProvider(
-        "jar",
-        "--create",
-        "--file=" + archiveDirectory.resolve(archiveFilename),
-        "--main-class=run.duke.Main",
-        "--module-version=" + version,
-        "-C",
-        classesDirectory.resolve(module).toString(),
-        ".");
-    runToolProvider(
-        "jar",
-        "--create",
-        "--file=" + archiveDirectory.resolve("jdk.tools.jar"),
-        "--module-version=" + version,
-        "-C",
-        classesDirectory.resolve("jdk.tools").toString(),
-        ".");
+    var classesStamp = classesDirectory.resolveSibling(classesDirectory.getFileName() + ".stamp");
+    var modules = List.of("jdk.tools", "run.duke");
+    var verbose = is("-Duke.verbose") || is("-Debug");
+    if (isUpToDate(classesStamp, classesDirectory, moduleSourcePath, modules)) {
+      if (verbose) out.println("| javac skipped, classes are up-to-date");
+    } else {
+      Files.deleteIfExists(classesStamp);
+      if (Files.exists(classesDirectory)) {
+        try (var stream = Files.walk(classesDirectory)) { // drop classes of deleted sources
+          for (var path : stream.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+        }
+      }
+      var start = FileTime.fromMillis(System.currentTimeMillis());
+      runToolProvider(
+          "javac",
+          "--module=" + String.join(",", modules),
+          "--module-source-path=" + moduleSourcePath,
+          "--release=" + release,
+          "-d",
+          classesDirectory.toString());
+      Files.writeString(classesStamp, release);
+      Files.setLastModifiedTime(classesStamp, start); // sources edited while compiling are newer
+    }
+    Files.createDirectories(archiveDirectory);
+    var jars =
+        List.of(
+            CompletableFuture.runAsync(
+                () ->
+                    createJar(
+                        archiveDirectory.resolve(archiveFilename),
+                        classesDirectory.resolve(module),
+                        "--main-class=run.duke.Main",
+                        "--module-version=" + version)),
+            CompletableFuture.runAsync(
+                () ->
+                    createJar(
+                        archiveDirectory.resolve("jdk.tools.jar"),
+                        classesDirectory.resolve("jdk.tools"),
+                        "--module-version=" + version)));
+    try {
+      CompletableFuture.allOf(jars.toArray(CompletableFuture[]::new)).join();
+    } catch (CompletionException exception) {
+      var cause = exception.getCause();
+      throw cause instanceof Exception checked ? checked : exception;
+    }
 
+    // settings not given as system properties are read back from an existing argument file
     var argumentFile = Path.of("duke");
-    if (Files.notExists(argumentFile)) Files.writeString(argumentFile, ARG_FILE);
+    var arguments = readArgumentFile(argumentFile);
+    var sharedArchiveDefault = arguments.stream().anyMatch(a -> a.startsWith("-XX:SharedArchive"));
+    var sharedArchive = Boolean.parseBoolean(init("shared-archive", "" + sharedArchiveDefault));
+    var sharedArchiveOption = "";
+    if (sharedArchive) {
+      var sharedArchiveFile = archiveDirectory.resolve("duke.jsa");
+      dumpSharedArchive(archiveDirectory, sharedArchiveFile, module);
+      var path = sharedArchiveFile.toString().replace('\\', '/');
+      sharedArchiveOption = "-XX:SharedArchiveFile=" + path;
+    }
+
+    var recording = arguments.stream().anyMatch(a -> a.startsWith("-XX:StartFlightRecording"));
+    var profile = init("profile", recording ? "recording" : "default");
+    var profileOptions =
+        switch (profile) {
+          case "default" -> "";
+          case "recording" -> RECORDING_OPTIONS;
+          default -> throw new IllegalArgumentException("Unknown profile: " + profile);
+        };
+
+    if (Files.notExists(argumentFile)) {
+      Files.writeString(argumentFile, ARG_FILE.formatted(profileOptions, sharedArchiveOption));
+    } else if (init("profile", null) != null || init("shared-archive", null) != null) {
+      var text = Files.readString(argumentFile); // keep lines edited by the user
+      var updated = replaceSection(text, PROFILE_SECTION, profileOptions);
+      updated = replaceSection(updated, SHARED_ARCHIVE_SECTION, sharedArchiveOption);
+      if (!updated.equals(text)) Files.writeString(argumentFile, updated);
+    }
     var gitignoreFile = Path.of(".duke", ".gitignore");
     if (Files.notExists(gitignoreFile)) Files.writeString(gitignoreFile, GIT_FILE);
   }
 
+  /** {@return the stripped lines of the argument file, except for blank and comment lines} */
+  static List<String> readArgumentFile(Path file) throws Exception {
+    if (Files.notExists(file)) return List.of();
+    return Files.readAllLines(file).stream()
+        .map(String::strip)
+        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+        .toList();
+  }
+
+  /**
+   * Replaces the lines following the comment block of the given section title with the given lines.
+   *
+   * <p>The section ends at the next comment line. A missing section is inserted at the start.
+   */
+  static String replaceSection(String text, String title, String lines) {
+    var result = new ArrayList<>(text.lines().toList());
+    var replacement = List.of((lines + "\n").split("\n", -1));
+    var from = 0;
+    while (from < result.size() && !result.get(from).strip().startsWith(title)) from++;
+    if (from == result.size()) {
+      result.addAll(0, Stream.concat(Stream.of("#", title, "#"), replacement.stream()).toList());
+    } else {
+      while (from < result.size() && result.get(from).strip().startsWith("#")) from++;
+      var to = from;
+      while (to < result.size() && !result.get(to).strip().startsWith("#")) to++;
+      result.subList(from, to).clear();
+      result.addAll(from, replacement);
+    }
+    return String.join("\n", result) + "\n";
+  }
+
+  /**
+   * Checks whether compiled classes of all given modules exist and are newer than their sources.
+   *
+   * <p>Module source paths using the {@code *} pattern form are never considered up-to-date, nor
+   * are modules without any existing source directory.
+   */
+  static boolean isUpToDate(Path stamp, Path classes, String moduleSourcePath, List<String> modules)
+      throws Exception {
+    if (Files.notExists(stamp) || moduleSourcePath.contains("*")) return false;
+    var time = Files.getLastModifiedTime(stamp);
+    for (var module : modules) {
+      if (!Files.isDirectory(classes.resolve(module))) return false;
+      var directories = computeModuleSourceDirectories(moduleSourcePath, module);
+      if (directories.isEmpty()) return false; // let javac report missing sources
+      for (var directory : directories) {
+        try (var stream = Files.walk(directory)) {
+          for (var path : stream.toList()) {
+            if (Files.getLastModifiedTime(path).compareTo(time) >= 0) return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes the existing source directories of a module.
+   *
+   * @param moduleSourcePath a module source path in module-specific form {@code module=path}, or
+   *     a list of paths containing a directory for each module
+   * @param module the name of the module
+   * @return the list of existing source directories of the module
+   */
+  static List<Path> computeModuleSourceDirectories(String moduleSourcePath, String module) {
+    var index = moduleSourcePath.indexOf('=');
+    var specific = index >= 0;
+    if (specific && !moduleSourcePath.substring(0, index).equals(module)) return List.of();
+    var elements = moduleSourcePath.substring(index + 1).split(File.pathSeparator);
+    return Stream.of(elements)
+        .map(element -> specific ? Path.of(element) : Path.of(element, module))
+        .filter(Files::isDirectory)
+        .toList();
+  }
+
+  /**
+   * Creates a modular JAR file from a directory of classes.
+   *
+   * <p>The JAR file is created next to the classes first and only moved to the target location if
+   * the target does not exist or contains different entries, keeping modification times stable.
+   */
+  static void createJar(Path file, Path classes, String... options) {
+    try {
+      var temp = classes.resolveSibling(file.getFileName().toString());
+      Files.deleteIfExists(temp);
+      var args = new ArrayList<String>();
+      args.add("--create");
+      args.add("--file=" + temp);
+      args.addAll(List.of(options));
+      args.add("-C");
+      args.add(classes.toString());
+      args.add(".");
+      runToolProvider("jar", args.toArray(String[]::new));
+      if (Files.exists(file) && computeContentHash(file).equals(computeContentHash(temp))) {
+        Files.delete(temp);
+        var verbose = is("-Duke.verbose") || is("-Debug");
+        if (verbose) out.printf("| %s is up-to-date%n", file);
+        return;
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    } catch (Exception exception) {
+      throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
+    }
+  }
+
+  /** Computes a hash of names and contents of all entries, ignoring their timestamps. */
+  static String computeContentHash(Path jar) throws Exception {
+    var digest = MessageDigest.getInstance("SHA-256");
+    try (var zip = new ZipFile(jar.toFile())) {
+      var entries = zip.stream().sorted(Comparator.comparing(ZipEntry::getName)).toList();
+      for (var entry : entries) {
+        digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+        try (var stream = zip.getInputStream(entry)) {
+          digest.update(stream.readAllBytes());
+        }
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Runs a training invocation of the launcher module that dumps an AppCDS archive at exit.
+   *
+   * <p>The archive is only created if it is missing or older than one of the modular JAR files
+   * found in the archive directory.
+   */
+  static void dumpSharedArchive(Path archiveDirectory, Path archive, String module)
+      throws Exception {
+    if (Files.exists(archive)) {
+      var time = Files.getLastModifiedTime(archive);
+      try (var stream = Files.newDirectoryStream(archiveDirectory, "*.jar")) {
+        var outdated = false;
+        for (var jar : stream) outdated |= Files.getLastModifiedTime(jar).compareTo(time) > 0;
+        if (!outdated) return;
+      }
+    }
+    var java = Path.of(System.getProperty("java.home"), "bin", "java");
+    var command =
+        List.of(
+            java.toString(),
+            "-XX:ArchiveClassesAtExit=" + archive,
+            "--module-path",
+            archiveDirectory.toString(),
+            "--add-modules",
+            "ALL-DEFAULT,ALL-MODULE-PATH",
+            "-Duke.no-daemon",
+            "--module",
+            module,
+            "--version"); // loads the launcher without compiling sources or installing tools
+    var verbose = is("-Duke.verbose") || is("-Debug");
+    if (verbose) out.printf("| %s%n", String.join(" ", command));
+    var builder = new ProcessBuilder(command);
+    if (verbose) builder.inheritIO();
+    else builder.redirectOutput(Redirect.DISCARD).redirectError(Redirect.DISCARD);
+    var code = builder.start().waitFor();
+    if (code == 0) return;
+    throw new RuntimeException("Training run finished with exit code %d".formatted(code));
+  }
+
   private static String init(String name, String defaultValue) {
     return System.getProperty(("-Duke.init." + name).substring(2), defaultValue);
   }
@@ -83,7 +306,11 @@ class Init {
     return value.isEmpty() || value.equalsIgnoreCase("true");
   }
 
-  private static final String ARG_FILE =
+  private static final String PROFILE_SECTION = "# Profile options";
+
+  private static final String SHARED_ARCHIVE_SECTION = "# Class data sharing archive";
+
+  static final String ARG_FILE =
       """
       #
       # Java Launcher Argument File running module "run.duke"
@@ -97,8 +324,16 @@ class Init {
       # --show-version
       # --show-module-resolution
       #
-      -Xlog:jfr+startup=error
-      -XX:StartFlightRecording:name=Duke,filename=.duke/recording.jfr,dumponexit=true
+
+      #
+      # Profile options, selected by -Duke.init.profile=default|recording
+      #
+      %s
+
+      #
+      # Class data sharing archive, created by -Duke.init.shared-archive=true
+      #
+      %s
 
       #
       # Path to application modules
@@ -116,6 +351,12 @@ class Init {
       --module run.duke
       """;
 
+  static final String RECORDING_OPTIONS =
+      """
+      -Xlog:jfr+startup=error
+      -XX:StartFlightRecording:name=Duke,filename=.duke/recording.jfr,dumponexit=true\
+      """;
+
   private static final String GIT_FILE =
       """
       /out/
@@ -124,6 +365,7 @@ class Init {
       *.class
       *.jar
       *.jfr
+      *.jsa
       *.zip
       """;
 }
@@ -1,10 +1,19 @@
 package run.duke.menu;
 
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.StringJoiner;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 import java.util.spi.ToolProvider;
 import jdk.tools.Tool;
 import jdk.tools.ToolFinder;
@@ -33,24 +42,161 @@ public record FileMenu(String name, ToolFinder items) implements ToolMenu {
       return this;
     }
 
+    /**
+     * Prints checksums of files.
+     *
+     * <p>Usage: {@code checksum [--algorithm SHA-256[,MD5...]] <file>...} and the short form
+     * {@code checksum <file> <algorithm>}, with the second argument naming a supported message
+     * digest algorithm. All files are read in parallel, each one only once for all algorithms.
+     */
     @Override
     public int run(PrintWriter out, PrintWriter err, String... args) {
-      var file = Path.of(args[0]);
-      var algorithm = args.length > 1 ? args[1] : "SHA-256";
-      // var checksum = PathSupport.checksum(file, algorithm);
-      // out.println(checksum);
+      var algorithms = List.of("SHA-256");
+      var files = new ArrayList<Path>();
+      for (int i = 0; i < args.length; i++) {
+        if (args[i].equals("--algorithm")) {
+          if (i + 1 == args.length) {
+            err.println("Missing value of option: --algorithm");
+            return 1;
+          }
+          algorithms = List.of(args[++i].split(","));
+        } else {
+          files.add(Path.of(args[i]));
+        }
+      }
+      var shortForm = args.length == 2 && !args[0].startsWith("--") && files.size() == 2;
+      if (shortForm && isMessageDigestAlgorithm(args[1])) {
+        algorithms = List.of(args[1]); // checksum <file> <algorithm>
+        files.remove(1);
+      }
+      if (files.isEmpty()) {
+        err.println("Usage: checksum [--algorithm SHA-256[,MD5...]] <file>...");
+        return 1;
+      }
+      for (var algorithm : algorithms) {
+        if (isMessageDigestAlgorithm(algorithm)) continue;
+        err.println("Unsupported algorithm: " + algorithm);
+        return 1;
+      }
+      for (var file : files) {
+        if (Files.isRegularFile(file)) continue;
+        err.println("No such file: " + file);
+        return 1;
+      }
+      var selected = algorithms;
+      var checksums = files.parallelStream().map(file -> PathSupport.checksums(file, selected));
+      var iterator = files.iterator();
+      for (var map : checksums.toList()) {
+        var file = iterator.next();
+        if (files.size() == 1 && map.size() == 1) {
+          out.println(map.values().iterator().next());
+          continue;
+        }
+        map.forEach(
+            (algorithm, checksum) -> {
+              var prefix = map.size() == 1 ? "" : algorithm + ' ';
+              out.println(prefix + checksum + "  " + file);
+            });
+      }
       return 0;
     }
+
+    static boolean isMessageDigestAlgorithm(String name) {
+      return Security.getAlgorithms("MessageDigest").contains(name.toUpperCase(Locale.ROOT));
+    }
   }
 
   record Download(String name) implements ToolOperator {
+    /**
+     * Downloads one or many remote resources.
+     *
+     * <p>Usage: {@code download <source> <target>} and the batch form {@code download --manifest
+     * <file> [--parallel <n>] [--per-host <n>]}. Each non-blank line of a manifest file that does
+     * not start with {@code #} holds a source URI, optionally with a fragment like {@code
+     * #content-length=123&sha256=...}, and a target path separated by whitespace.
+     */
     @Override
     public int run(ToolRunner runner, PrintWriter out, PrintWriter err, String... args) {
-      var source = URI.create(args[0]);
-      var target = Path.of(args[1]);
-      BROWSER.download(source, target);
+      if (args.length == 2 && !args[0].startsWith("--")) {
+        var source = URI.create(args[0]);
+        var target = Path.of(args[1]);
+        BROWSER.download(source, target);
+        return 0;
+      }
+      Path manifest = null;
+      var parallel = 8;
+      var perHost = 4;
+      for (int i = 0; i < args.length; i++) {
+        var option = args[i];
+        if (!List.of("--manifest", "--parallel", "--per-host").contains(option)) {
+          err.println("Unknown option: " + option);
+          return usage(err);
+        }
+        if (i + 1 == args.length) {
+          err.println("Missing value of option: " + option);
+          return 1;
+        }
+        var value = args[++i];
+        if (option.equals("--manifest")) {
+          manifest = Path.of(value);
+          continue;
+        }
+        var count = toInt(value);
+        if (count <= 0) {
+          err.println("Expected a positive number as value of option " + option + ": " + value);
+          return usage(err);
+        }
+        if (option.equals("--parallel")) parallel = count;
+        else perHost = count;
+      }
+      if (manifest == null) return usage(err);
+      var downloads = PathSupport.readManifest(manifest);
+      var printer = runner.context().printer();
+      var count = new AtomicInteger();
+      var bytes = new AtomicLong();
+      var start = System.nanoTime();
+      BROWSER.download(
+          downloads,
+          parallel,
+          perHost,
+          (source, target) -> {
+            var size = PathSupport.size(target);
+            var total = bytes.addAndGet(size);
+            var message =
+                "[%d/%d] %s %s"
+                    .formatted(
+                        count.incrementAndGet(),
+                        downloads.size(),
+                        PathSupport.toThroughputString(total, System.nanoTime() - start),
+                        target);
+            printer.debug(message);
+          });
+      var nanos = System.nanoTime() - start;
+      var summary =
+          "Downloaded %d file%s in %.3f s, %s"
+              .formatted(
+                  count.get(),
+                  count.get() == 1 ? "" : "s",
+                  nanos / 1e9,
+                  PathSupport.toThroughputString(bytes.get(), nanos));
+      out.println(summary);
       return 0;
     }
+
+    static int usage(PrintWriter err) {
+      err.println("Usage: download <source> <target>");
+      err.println("       download --manifest <file> [--parallel <n>] [--per-host <n>]");
+      return 1;
+    }
+
+    /** {@return the value as an int, or {@code -1} if it is not a decimal number} */
+    static int toInt(String value) {
+      try {
+        return Integer.parseInt(value);
+      } catch (NumberFormatException exception) {
+        return -1;
+      }
+    }
   }
 
   record Extract(String name) implements Tool, ToolProvider {
@@ -65,21 +211,80 @@ public record FileMenu(String name, ToolFinder items) implements ToolMenu {
       var dir = Path.of(args[1]);
       var sub = args.length > 2 ? Integer.parseInt(args[2]) : 0;
       var log = new StringJoiner("\n");
-      // PathSupport.unzip(zip, dir, sub, log::add);
+      var count = PathSupport.extract(zip, dir, sub, log::add);
+      if (count > 0) out.println(log);
       return 0;
     }
   }
 
   record Read(String name) implements ToolOperator {
+    private static final Pattern RANGE_PATTERN =
+        Pattern.compile("(\\d{1,18})-(\\d{0,18})|-\\d{1,18}");
+
+    /**
+     * Prints the content of a local or remote resource.
+     *
+     * <p>Usage: {@code read [--range <first>-[<last>] | --range -<length>] <uri>}. Content is
+     * streamed in chunks; a line separator is appended if the content does not end with white
+     * space.
+     */
     @Override
     public int run(ToolRunner runner, PrintWriter out, PrintWriter err, String... args) {
-      var uri = URI.create(args[0]);
-      var raw = BROWSER.read(uri);
-      var text = raw.stripTrailing();
-      if (raw.equals(text)) out.println(text);
-      else out.print(raw);
+      String range = null;
+      URI uri = null;
+      for (int i = 0; i < args.length; i++) {
+        if (!args[i].equals("--range")) {
+          uri = URI.create(args[i]);
+          continue;
+        }
+        if (i + 1 == args.length) {
+          err.println("Missing value of option: --range");
+          return 1;
+        }
+        range = args[++i];
+        if (!isRange(range)) {
+          err.println("Invalid range: " + range);
+          return usage(err);
+        }
+      }
+      if (uri == null) return usage(err);
+      var last = new int[] {-1};
+      var writer =
+          new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) {
+              if (length == 0) return;
+              out.write(chars, offset, length);
+              last[0] = chars[offset + length - 1];
+            }
+
+            @Override
+            public void flush() {
+              out.flush();
+            }
+
+            @Override
+            public void close() {}
+          };
+      BROWSER.read(uri, range, writer);
+      if (last[0] < 0 || !Character.isWhitespace(last[0])) out.println();
       return 0;
     }
+
+    static int usage(PrintWriter err) {
+      err.println("Usage: read [--range <first>-[<last>] | --range -<length>] <uri>");
+      return 1;
+    }
+
+    /** {@return whether the value is a byte range with a first position not after the last} */
+    static boolean isRange(String value) {
+      var matcher = RANGE_PATTERN.matcher(value);
+      if (!matcher.matches()) return false;
+      var first = matcher.group(1);
+      var last = matcher.group(2);
+      if (first == null || last.isEmpty()) return true;
+      return Long.parseLong(first) <= Long.parseLong(last);
+    }
   }
 
   record Head(String name) implements ToolOperator {
@@ -0,0 +1,497 @@
+package run.duke.menu;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+final class PathSupport {
+  /** Size of each memory-mapped region read while computing checksums. */
+  private static final long CHECKSUM_REGION_SIZE = 64 * 1024 * 1024;
+
+  /** Options to write extracted files, never following a symbolic link at the target path. */
+  private static final OpenOption[] WRITE_OPTIONS = {
+    CREATE, WRITE, TRUNCATE_EXISTING, NOFOLLOW_LINKS
+  };
+
+  static String checksum(Path file, String algorithm) {
+    return checksums(file, List.of(algorithm)).get(algorithm);
+  }
+
+  /** Computes checksums of the given file for all algorithms while reading it once. */
+  static Map<String, String> checksums(Path file, List<String> algorithms) {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      var digests = new ArrayList<MessageDigest>();
+      for (var algorithm : algorithms) digests.add(MessageDigest.getInstance(algorithm));
+      var size = channel.size();
+      for (long position = 0; position < size; position += CHECKSUM_REGION_SIZE) {
+        var length = Math.min(CHECKSUM_REGION_SIZE, size - position);
+        var buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        for (var digest : digests) digest.update(buffer.duplicate());
+      }
+      var checksums = new LinkedHashMap<String, String>();
+      for (var digest : digests) {
+        checksums.put(digest.getAlgorithm(), HexFormat.of().formatHex(digest.digest()));
+      }
+      return checksums;
+    } catch (Exception exception) {
+      throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
+    }
+  }
+
+  /**
+   * Extracts a {@code .zip}, {@code .jar}, {@code .tar.gz}, or {@code .tgz} archive.
+   *
+   * <p>Entries are never written outside the target directory: entry names and symbolic link
+   * targets leading out of it are rejected, and no entry is written through a symbolic link that
+   * resolves to a location outside of it.
+   *
+   * @param archive the archive file to extract
+   * @param directory the target directory
+   * @param strip the number of leading path elements to remove from each entry name
+   * @param log the consumer of extracted file names, called in archive order
+   * @return the number of extracted entries
+   */
+  static int extract(Path archive, Path directory, int strip, Consumer<String> log) {
+    var name = archive.getFileName().toString();
+    var tar = name.endsWith(".tar.gz") || name.endsWith(".tgz");
+    return tar ? untar(archive, directory, strip, log) : unzip(archive, directory, strip, log);
+  }
+
+  /** Extracts all entries of a ZIP file in parallel, reading its central directory once. */
+  static int unzip(Path zip, Path directory, int strip, Consumer<String> log) {
+    try (var channel = FileChannel.open(zip, StandardOpenOption.READ)) {
+      Files.createDirectories(directory);
+      var entries = readCentralDirectory(channel);
+      if (entries == null) return unzipWithZipFile(zip, directory, strip, log);
+      var targets = entries.parallelStream().map(e -> unzip(channel, e, directory, strip)).toList();
+      return log(targets, log);
+    } catch (Exception exception) {
+      throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
+    }
+  }
+
+  private record ZipEntry(
+      String name, int method, long compressedSize, long size, int mode, long offset) {
+    boolean isDirectory() {
+      return name.endsWith("/");
+    }
+
+    boolean isSymbolicLink() {
+      return (mode & 0170000) == 0120000;
+    }
+  }
+
+  /** Returns the entries of the central directory, or {@code null} if not supported. */
+  private static List<ZipEntry> readCentralDirectory(FileChannel channel) throws Exception {
+    var size = channel.size();
+    var tail = ByteBuffer.allocate((int) Math.min(size, 0xFFFF + 22)).order(LITTLE_ENDIAN);
+    channel.read(tail, size - tail.capacity());
+    var end = -1;
+    for (int i = tail.capacity() - 22; i >= 0; i--) {
+      if (tail.getInt(i) == 0x06054b50) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) throw new ZipException("End of central directory not found");
+    var count = Short.toUnsignedInt(tail.getShort(end + 10));
+    var length = Integer.toUnsignedLong(tail.getInt(end + 12));
+    var offset = Integer.toUnsignedLong(tail.getInt(end + 16));
+    if (count == 0xFFFF || length == 0xFFFFFFFFL || offset == 0xFFFFFFFFL) return null; // ZIP64
+    var directory = ByteBuffer.allocate((int) length).order(LITTLE_ENDIAN);
+    while (directory.hasRemaining()) {
+      if (channel.read(directory, offset + directory.position()) < 0) throw new EOFException();
+    }
+    var entries = new ArrayList<ZipEntry>(count);
+    var header = ByteBuffer.allocate(30).order(LITTLE_ENDIAN);
+    for (int position = 0, i = 0; i < count; i++) {
+      if (directory.getInt(position) != 0x02014b50) throw new ZipException("Bad central directory");
+      var flags = Short.toUnsignedInt(directory.getShort(position + 8));
+      var method = Short.toUnsignedInt(directory.getShort(position + 10));
+      var compressedSize = Integer.toUnsignedLong(directory.getInt(position + 20));
+      var uncompressedSize = Integer.toUnsignedLong(directory.getInt(position + 24));
+      var nameLength = Short.toUnsignedInt(directory.getShort(position + 28));
+      var extraLength = Short.toUnsignedInt(directory.getShort(position + 30));
+      var commentLength = Short.toUnsignedInt(directory.getShort(position + 32));
+      var mode = directory.getInt(position + 38) >>> 16;
+      var headerOffset = Integer.toUnsignedLong(directory.getInt(position + 42));
+      var bytes = new byte[nameLength];
+      directory.get(position + 46, bytes);
+      position += 46 + nameLength + extraLength + commentLength;
+      if ((flags & 1) != 0 || (method != 0 && method != 8)) return null; // encrypted or unknown
+      if (compressedSize == 0xFFFFFFFFL || uncompressedSize == 0xFFFFFFFFL) return null; // ZIP64
+      channel.read(header.clear(), headerOffset);
+      var dataOffset =
+          headerOffset
+              + 30
+              + Short.toUnsignedInt(header.getShort(26))
+              + Short.toUnsignedInt(header.getShort(28));
+      var name = new String(bytes, StandardCharsets.UTF_8);
+      entries.add(new ZipEntry(name, method, compressedSize, uncompressedSize, mode, dataOffset));
+    }
+    return entries;
+  }
+
+  private static String unzip(FileChannel channel, ZipEntry entry, Path directory, int strip) {
+    var target = resolve(directory, entry.name(), strip);
+    if (target == null) return null;
+    try {
+      if (entry.isDirectory()) {
+        createDirectories(directory, target);
+        return null;
+      }
+      createParentDirectories(directory, target);
+      try (var stream = newInputStream(channel, entry.offset(), entry.compressedSize())) {
+        var in = entry.method() == 0 ? stream : newInflaterInputStream(stream);
+        if (entry.isSymbolicLink()) {
+          var link = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+          Files.createSymbolicLink(target, checkLinkTarget(directory, target, link));
+          return directory.relativize(target).toString();
+        }
+        if (entry.method() == 0) {
+          try (var out = FileChannel.open(target, WRITE_OPTIONS)) {
+            var count = 0L;
+            while (count < entry.size()) {
+              count += channel.transferTo(entry.offset() + count, entry.size() - count, out);
+            }
+          }
+        } else {
+          Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      setExecutable(target, entry.mode());
+      return directory.relativize(target).toString();
+    } catch (Exception exception) {
+      throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
+    }
+  }
+
+  private static int unzipWithZipFile(Path zip, Path directory, int strip, Consumer<String> log)
+      throws Exception {
+    Files.createDirectories(directory);
+    try (var file = new ZipFile(zip.toFile())) {
+      var entries = file.stream().toList();
+      var targets =
+          entries.parallelStream()
+              .map(
+                  entry -> {
+                    var target = resolve(directory, entry.getName(), strip);
+                    if (target == null) return null;
+                    try {
+                      if (entry.isDirectory()) {
+                        createDirectories(directory, target);
+                        return null;
+                      }
+                      createParentDirectories(directory, target);
+                      try (var in = file.getInputStream(entry)) {
+                        Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                      }
+                      return directory.relativize(target).toString();
+                    } catch (Exception exception) {
+                      throw new RuntimeException(exception);
+                    }
+                  })
+              .toList();
+      return log(targets, log);
+    }
+  }
+
+  /** Extracts all entries of a gzip-compressed tape archive in order. */
+  static int untar(Path tgz, Path directory, int strip, Consumer<String> log) {
+    var targets = new ArrayList<String>();
+    try (var in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(tgz)), 65536)) {
+      Files.createDirectories(directory);
+      var header = new byte[512];
+      String longName = null;
+      String longLink = null;
+      while (in.readNBytes(header, 0, 512) == 512) {
+        if (isZero(header)) break;
+        var type = (char) header[156];
+        var size = parseTarNumber(header, 124, 12);
+        var name = longName != null ? longName : parseTarName(header);
+        var link = longLink != null ? longLink : parseTarString(header, 157, 100);
+        if (type == 'L' || type == 'K' || type == 'x') {
+          var content = new String(readTarContent(in, size), StandardCharsets.UTF_8);
+          if (type == 'L') longName = content.replace("\0", "");
+          if (type == 'K') longLink = content.replace("\0", "");
+          if (type == 'x') {
+            var records = parsePaxRecords(content);
+            longName = records.getOrDefault("path", longName);
+            longLink = records.getOrDefault("linkpath", longLink);
+          }
+          continue;
+        }
+        longName = null;
+        longLink = null;
+        var target = resolve(directory, name, strip);
+        if (target == null || type == '5' || (type != '0' && type != '\0' && type != '2')) {
+          if (target != null && type == '5') createDirectories(directory, target);
+          skipTarContent(in, size + padding(size));
+          continue;
+        }
+        createParentDirectories(directory, target);
+        if (type == '2') {
+          Files.createSymbolicLink(target, checkLinkTarget(directory, target, link));
+          skipTarContent(in, size + padding(size));
+        } else {
+          try (var out = Files.newOutputStream(target, WRITE_OPTIONS)) {
+            copy(in, out, size);
+          }
+          skipTarContent(in, padding(size));
+          setExecutable(target, (int) parseTarNumber(header, 100, 8));
+        }
+        targets.add(directory.relativize(target).toString());
+      }
+      return log(targets, log);
+    } catch (Exception exception) {
+      throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
+    }
+  }
+
+  private static String parseTarName(byte[] header) {
+    var name = parseTarString(header, 0, 100);
+    var magic = parseTarString(header, 257, 6);
+    if (!magic.startsWith("ustar")) return name;
+    var prefix = parseTarString(header, 345, 155);
+    return prefix.isEmpty() ? name : prefix + '/' + name;
+  }
+
+  private static String parseTarString(byte[] header, int offset, int length) {
+    var end = offset;
+    while (end < offset + length && header[end] != 0) end++;
+    return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+  }
+
+  private static long parseTarNumber(byte[] header, int offset, int length) {
+    if ((header[offset] & 0x80) != 0) { // base-256 encoding
+      var value = 0L;
+      for (int i = offset + 1; i < offset + length; i++) value = (value << 8) | (header[i] & 0xFF);
+      return value;
+    }
+    var text = parseTarString(header, offset, length).trim();
+    return text.isEmpty() ? 0 : Long.parseLong(text, 8);
+  }
+
+  private static Map<String, String> parsePaxRecords(String content) {
+    var records = new HashMap<String, String>();
+    for (var line : content.split("\n")) {
+      var space = line.indexOf(' ');
+      var equals = line.indexOf('=');
+      if (space < 0 || equals < space) continue;
+      records.put(line.substring(space + 1, equals), line.substring(equals + 1));
+    }
+    return records;
+  }
+
+  private static byte[] readTarContent(InputStream in, long size) throws IOException {
+    var bytes = in.readNBytes((int) size);
+    skipTarContent(in, padding(size));
+    return bytes;
+  }
+
+  private static void skipTarContent(InputStream in, long size) throws IOException {
+    in.skipNBytes(size);
+  }
+
+  private static long padding(long size) {
+    return (512 - (size % 512)) % 512;
+  }
+
+  private static boolean isZero(byte[] bytes) {
+    for (var b : bytes) if (b != 0) return false;
+    return true;
+  }
+
+  private static void copy(InputStream in, OutputStream out, long size) throws IOException {
+    var buffer = new byte[65536];
+    var remaining = size;
+    while (remaining > 0) {
+      var n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+      if (n < 0) throw new EOFException();
+      out.write(buffer, 0, n);
+      remaining -= n;
+    }
+  }
+
+  /** Returns the target path of an entry after stripping leading names, or {@code null}. */
+  private static Path resolve(Path directory, String name, int strip) {
+    var names = Stream.of(name.split("/")).filter(n -> !n.isEmpty() && !n.equals(".")).toList();
+    if (names.size() <= strip) return null;
+    var base = directory.toAbsolutePath().normalize();
+    var target = base.resolve(String.join("/", names.subList(strip, names.size()))).normalize();
+    if (!target.startsWith(base)) throw new IllegalArgumentException("Bad entry name: " + name);
+    return directory.resolve(base.relativize(target));
+  }
+
+  /** Returns the target of a symbolic link entry, rejecting targets outside the directory. */
+  private static Path checkLinkTarget(Path directory, Path target, String link) {
+    var path = Path.of(link);
+    var base = directory.toAbsolutePath().normalize();
+    var resolved = target.toAbsolutePath().getParent().resolve(path).normalize();
+    if (path.isAbsolute() || !resolved.startsWith(base)) {
+      throw new IllegalArgumentException("Bad link target: " + target + " -> " + link);
+    }
+    return path;
+  }
+
+  /** Creates the directory entry, checking that no link leads out of the target directory. */
+  private static void createDirectories(Path directory, Path target) throws IOException {
+    createParentDirectories(directory, target);
+    Files.createDirectories(target);
+    checkRealPath(directory, target);
+  }
+
+  /**
+   * Creates parent directories of an entry and deletes a symbolic link at its location.
+   *
+   * <p>The closest existing ancestor and the parent itself must resolve to a location within the
+   * target directory, such that no directory or file is created through a symbolic link leading
+   * out of it.
+   */
+  private static void createParentDirectories(Path directory, Path target) throws IOException {
+    var parent = target.getParent();
+    if (parent == null) return;
+    var existing = parent;
+    while (existing != null && !Files.exists(existing)) existing = existing.getParent();
+    if (existing != null) checkRealPath(directory, existing);
+    Files.createDirectories(parent);
+    checkRealPath(directory, parent);
+    if (Files.isSymbolicLink(target)) Files.delete(target);
+  }
+
+  private static void checkRealPath(Path directory, Path path) throws IOException {
+    if (path.toRealPath().startsWith(directory.toRealPath())) return;
+    throw new IllegalArgumentException("Entry leads out of target directory: " + path);
+  }
+
+  private static void setExecutable(Path target, int mode) throws IOException {
+    if ((mode & 0111) == 0) return;
+    if (!target.getFileSystem().supportedFileAttributeViews().contains("posix")) return;
+    var permissions = new HashSet<>(Files.getPosixFilePermissions(target));
+    permissions.add(PosixFilePermission.OWNER_EXECUTE);
+    if ((mode & 0010) != 0) permissions.add(PosixFilePermission.GROUP_EXECUTE);
+    if ((mode & 0001) != 0) permissions.add(PosixFilePermission.OTHERS_EXECUTE);
+    Files.setPosixFilePermissions(target, permissions);
+  }
+
+  private static InputStream newInputStream(FileChannel channel, long position, long size) {
+    return new InputStream() {
+      private long offset = position;
+      private final long end = position + size;
+
+      @Override
+      public int read() throws IOException {
+        var bytes = new byte[1];
+        return read(bytes, 0, 1) < 0 ? -1 : bytes[0] & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] bytes, int off, int len) throws IOException {
+        if (offset >= end) return -1;
+        var length = (int) Math.min(len, end - offset);
+        var n = channel.read(ByteBuffer.wrap(bytes, off, length), offset);
+        if (n > 0) offset += n;
+        return n;
+      }
+    };
+  }
+
+  private static InputStream newInflaterInputStream(InputStream stream) {
+    var inflater = new Inflater(true);
+    return new InflaterInputStream(stream, inflater, 65536) {
+      @Override
+      public void close() throws IOException {
+        super.close();
+        inflater.end();
+      }
+    };
+  }
+
+  private static int log(List<String> targets, Consumer<String> log) {
+    var count = 0;
+    for (var target : targets) {
+      if (target == null) continue;
+      log.accept(target);
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Reads a download manifest mapping source URIs to target paths.
+   *
+   * <p>Each non-blank line not starting with {@code #} contains a URI and a target path separated
+   * by whitespace.
+   */
+  static Map<URI, Path> readManifest(Path manifest) {
+    var downloads = new LinkedHashMap<URI, Path>();
+    try {
+      var lines = Files.readAllLines(manifest);
+      for (int i = 0; i < lines.size(); i++) {
+        var line = lines.get(i).strip();
+        if (line.isEmpty() || line.startsWith("#")) continue;
+        var values = line.split("\\s+");
+        if (values.length != 2) {
+          throw new IllegalArgumentException("%s:%d: %s".formatted(manifest, i + 1, line));
+        }
+        var source = URI.create(values[0]);
+        if (downloads.put(source, Path.of(values[1])) != null) {
+          var message = "Duplicate source in %s: %s".formatted(manifest, source);
+          throw new IllegalArgumentException(message);
+        }
+      }
+    } catch (Exception exception) {
+      throw (exception instanceof RuntimeException re) ? re : new RuntimeException(exception);
+    }
+    return downloads;
+  }
+
+  static long size(Path file) {
+    try {
+      return Files.size(file);
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  static String toThroughputString(long bytes, long nanos) {
+    var mebibytes = bytes / 1024.0 / 1024.0;
+    var seconds = Math.max(nanos, 1) / 1e9;
+    return "%.1f MiB at %.1f MiB/s".formatted(mebibytes, mebibytes / seconds);
+  }
+
+  private PathSupport() {}
+}
@@ -0,0 +1,158 @@
+package run.duke;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.function.Supplier;
+import java.util.spi.ToolProvider;
+import jdk.tools.Tool;
+import jdk.tools.ToolFinder;
+
+/**
+ * Measures the average duration of frequently called operations.
+ *
+ * <p>Compiled and launched like {@link Tests}, with {@code run.duke.Benchmarks} as main class.
+ * Arguments are an optional baseline file to compare the results with, usually {@code
+ * test-suite/benchmarks.txt}, and the option {@code --update} to write the results to it instead.
+ */
+public final class Benchmarks {
+  /** Number of tools in synthetic tool finders. */
+  static final int TOOLS = 5_000;
+
+  /** Consumes results of operations, preventing their elimination. */
+  static volatile int sink;
+
+  record Benchmark(String name, Supplier<Object> operation) {}
+
+  public static void main(String... args) throws Exception {
+    var update = List.of(args).contains("--update");
+    var baselineFile = List.of(args).stream().filter(arg -> !arg.startsWith("--")).findFirst();
+    var baseline = update ? Optional.<String>empty() : baselineFile;
+    var expected = baseline.map(Benchmarks::load).orElse(Map.of());
+    var results = new LinkedHashMap<String, Double>();
+    for (var benchmark : benchmarks()) {
+      var nanos = measure(benchmark.operation());
+      results.put(benchmark.name(), nanos);
+      var line = "%-48s %12.1f ns/op".formatted(benchmark.name(), nanos);
+      var base = expected.get(benchmark.name());
+      if (base != null) line += "  %6.2fx baseline".formatted(nanos / base);
+      System.out.println(line);
+    }
+    if (update && baselineFile.isPresent()) store(Path.of(baselineFile.get()), results);
+  }
+
+  static List<Benchmark> benchmarks() {
+    var tools = new ArrayList<Tool>();
+    for (int i = 0; i < TOOLS; i++) tools.add(Tool.of("bench", new NoopToolProvider("tool" + i)));
+    var listed = ToolFinder.of(tools);
+    var composed = ToolFinder.compose(tools.stream().map(ToolFinder::of).toList());
+    var last = "tool" + (TOOLS - 1);
+
+    var loader = ServiceLoader.load(ModuleLayer.boot(), ToolProvider.class);
+    var lazy = new Finders.LazyToolFinder(loader.stream().toList(), DukeCatalog.of(loader));
+    var session = ToolFinder.compose(listed, lazy, new DukeMenu());
+    var writer = new PrintWriter(new StringWriter());
+    var output = new DukeOutput(writer, writer, Level.WARNING);
+    var folders = DukeFolders.of(Path.of(""));
+
+    var workspace = DukeFolders.of(writeModules(Tests.newTempDirectory()));
+    var sources = workspace.src();
+    var roots = DukeSources.computeModuleCompilationUnitNames(sources);
+    var classes = workspace.tmp("benchmark", "classes");
+    System.setProperty("uke.dry-run", "true"); // stop runs before their tools are run
+    DukeSources.of(workspace); // compile all modules once, all benchmarks see up-to-date sources
+
+    return List.of(
+        new Benchmark("ToolFinder.of(5000 tools).find(last)", () -> listed.find(last)),
+        new Benchmark("ToolFinder.of(5000 tools).find(missing)", () -> listed.find("x")),
+        new Benchmark("ToolFinder.compose(5000 finders).find(last)", () -> composed.find(last)),
+        new Benchmark("LazyToolFinder.find(jar)", () -> lazy.find("jar")),
+        new Benchmark("LazyToolFinder.find(missing)", () -> lazy.find("x")),
+        new Benchmark("compose(5000 tools, providers).find(jar)", () -> session.find("jar")),
+        new Benchmark("DukeRunner.of(finder)", () -> DukeRunner.of(session)),
+        new Benchmark(
+            "DukeRunner.of(finder, printer, values...)",
+            () -> DukeRunner.of(session, output.toPrinter(), folders, output)),
+        new Benchmark(
+            "DukeSources.compileChangedModules(3 modules)",
+            () -> DukeSources.compileChangedModules(sources, sources, classes, roots, "")),
+        new Benchmark("DukeSources.of(3 modules)", () -> DukeSources.of(workspace)),
+        new Benchmark(
+            "DukeToolProvider.run(3 modules, dry-run jar)",
+            () -> DukeToolProvider.run(workspace, output, new DukeTimings(), "jar")));
+  }
+
+  /** Writes the sources of modules "foo", "bar" requiring "foo", and "baz" requiring "bar". */
+  static Path writeModules(Path root) {
+    var sources = DukeFolders.of(root).src();
+    Tests.write(sources.resolve("foo/module-info.java"), "module foo { exports foo; }");
+    Tests.write(sources.resolve("foo/foo/Foo.java"), "package foo; public class Foo {}");
+    Tests.write(sources.resolve("bar/module-info.java"), "module bar { requires foo; }");
+    Tests.write(sources.resolve("bar/bar/Bar.java"), "package bar; class Bar { foo.Foo f; }");
+    Tests.write(sources.resolve("baz/module-info.java"), "module baz { requires bar; }");
+    Tests.write(sources.resolve("baz/baz/Baz.java"), "package baz; class Baz {}");
+    return root;
+  }
+
+  /** {@return the average duration of the operation in nanoseconds, after a warm-up phase} */
+  static double measure(Supplier<Object> operation) {
+    run(operation, 500_000_000L);
+    var iterations = 0L;
+    var start = System.nanoTime();
+    var elapsed = 0L;
+    while (elapsed < 1_000_000_000L) {
+      for (int i = 0; i < 100; i++) sink ^= System.identityHashCode(operation.get());
+      iterations += 100;
+      elapsed = System.nanoTime() - start;
+    }
+    return (double) elapsed / iterations;
+  }
+
+  private static void run(Supplier<Object> operation, long nanos) {
+    var start = System.nanoTime();
+    while (System.nanoTime() - start < nanos) sink ^= System.identityHashCode(operation.get());
+  }
+
+  static Map<String, Double> load(String file) {
+    var map = new LinkedHashMap<String, Double>();
+    try {
+      for (var line : Files.readAllLines(Path.of(file))) {
+        if (line.isBlank() || line.startsWith("#")) continue;
+        var index = line.lastIndexOf('=');
+        map.put(line.substring(0, index), Double.parseDouble(line.substring(index + 1)));
+      }
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+    return map;
+  }
+
+  static void store(Path file, Map<String, Double> results) throws Exception {
+    var lines = new ArrayList<String>();
+    lines.add("# Average durations in nanoseconds per operation, measured by run.duke.Benchmarks");
+    var processors = Runtime.getRuntime().availableProcessors();
+    var os = System.getProperty("os.name") + ' ' + System.getProperty("os.arch");
+    lines.add("# Java %s, %s, %d processors".formatted(Runtime.version(), os, processors));
+    var tools = ModuleLayer.boot().findModule("jdk.tools").orElseThrow().getDescriptor();
+    lines.add("# Module jdk.tools " + tools.rawVersion().orElse("unversioned"));
+    results.forEach((name, nanos) -> lines.add("%s=%.1f".formatted(name, nanos)));
+    Files.write(file, lines);
+  }
+
+  record NoopToolProvider(String name) implements ToolProvider {
+    @Override
+    public int run(PrintWriter out, PrintWriter err, String... args) {
+      return 0;
+    }
+  }
+
+  private Benchmarks() {}
+}
@@ -0,0 +1,281 @@
+package run.duke;
+
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertThrows;
+import static run.duke.Tests.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class DukeBrowserTests {
+  static final byte[] DATA = new byte[100_000];
+
+  static {
+    new Random(123).nextBytes(DATA);
+  }
+
+  static void testResumeContinuesPartFile() throws Exception {
+    try (var server = Server.start()) {
+      var target = Tests.newTempDirectory().resolve("data.bin");
+      writePart(target, Arrays.copyOf(DATA, 1000), server.etag);
+      server.browser().copy(server.uri("/data"), target);
+      assertTrue(Arrays.equals(DATA, Files.readAllBytes(target)), "target equals data");
+      assertEquals(List.of("bytes=1000-"), server.ranges);
+      assertPartDeleted(target);
+    }
+  }
+
+  static void testResumeRestartsWhenResourceChanged() throws Exception {
+    try (var server = Server.start()) {
+      var target = Tests.newTempDirectory().resolve("data.bin");
+      writePart(target, "outdated".getBytes(), "\"old\"");
+      server.browser().copy(server.uri("/data"), target);
+      assertTrue(Arrays.equals(DATA, Files.readAllBytes(target)), "target equals data");
+      assertEquals(List.of("bytes=8-"), server.ranges);
+    }
+  }
+
+  static void testCompletePartIsMovedOnUnsatisfiableRange() throws Exception {
+    try (var server = Server.start()) {
+      var target = Tests.newTempDirectory().resolve("data.bin");
+      writePart(target, DATA, server.etag);
+      server.browser().copy(server.uri("/data"), target);
+      assertTrue(Arrays.equals(DATA, Files.readAllBytes(target)), "target equals data");
+      assertEquals(1, server.ranges.size());
+      assertPartDeleted(target);
+    }
+  }
+
+  static void testOversizedPartIsDiscardedOnUnsatisfiableRange() throws Exception {
+    try (var server = Server.start()) {
+      var target = Tests.newTempDirectory().resolve("data.bin");
+      writePart(target, Arrays.copyOf(DATA, DATA.length + 10), server.etag);
+      server.browser().copy(server.uri("/data"), target);
+      assertTrue(Arrays.equals(DATA, Files.readAllBytes(target)), "target equals data");
+      assertEquals(2, server.requests.size());
+    }
+  }
+
+  static void testPartWithoutValidatorIsDiscarded() throws Exception {
+    try (var server = Server.start()) {
+      var target = Tests.newTempDirectory().resolve("data.bin");
+      Files.write(target.resolveSibling("data.bin.part"), "garbage".getBytes());
+      server.browser().copy(server.uri("/data"), target);
+      assertTrue(Arrays.equals(DATA, Files.readAllBytes(target)), "target equals data");
+      assertEquals(List.of(), server.ranges);
+    }
+  }
+
+  static void testUnexpectedContentRangeDeletesPart() throws Exception {
+    try (var server = Server.start()) {
+      server.ignoreRangeStart = true;
+      var target = Tests.newTempDirectory().resolve("data.bin");
+      writePart(target, Arrays.copyOf(DATA, 1000), server.etag);
+      var browser = server.browser();
+      assertThrows(AssertionError.class, () -> browser.copy(server.uri("/data"), target));
+      assertPartDeleted(target);
+      assertTrue(Files.notExists(target), "no target written");
+    }
+  }
+
+  static void testSizeMismatchDeletesPart() throws Exception {
+    try (var server = Server.start()) {
+      var target = Tests.newTempDirectory().resolve("data.bin");
+      writePart(target, Arrays.copyOf(DATA, 1000), server.etag);
+      var source = server.uri("/data#content-length=" + (DATA.length + 1));
+      var browser = server.browser();
+      assertThrows(AssertionError.class, () -> browser.copy(source, target));
+      assertPartDeleted(target);
+    }
+  }
+
+  static void testRedirectedTransferIsVerifiedWithFragmentOfSource() throws Exception {
+    try (var server = Server.start()) {
+      var target = Tests.newTempDirectory().resolve("data.bin");
+      var browser = server.browser();
+      var wrong = server.uri("/redirect#content-length=" + (DATA.length - 1));
+      assertThrows(AssertionError.class, () -> browser.copy(wrong, target));
+      assertTrue(Files.notExists(target), "no target written");
+      assertPartDeleted(target);
+      browser.copy(server.uri("/redirect#" + fragment(DATA)), target);
+      assertTrue(Arrays.equals(DATA, Files.readAllBytes(target)), "target equals data");
+    }
+  }
+
+  static void testChunkedTransferIsVerifiedAfterWriting() throws Exception {
+    try (var server = Server.start()) {
+      server.chunked = true;
+      var target = Tests.newTempDirectory().resolve("data.bin");
+      var browser = server.browser();
+      var size = server.uri("/data#content-length=" + (DATA.length + 1));
+      assertThrows(AssertionError.class, () -> browser.copy(size, target));
+      assertPartDeleted(target);
+      var checksum = server.uri("/data#" + fragment("other".getBytes()).replaceAll(".*&", ""));
+      assertThrows(AssertionError.class, () -> browser.copy(checksum, target));
+      assertPartDeleted(target);
+      assertTrue(Files.notExists(target), "no target written");
+    }
+  }
+
+  static void testCompletePartIsVerifiedOnUnsatisfiableRange() throws Exception {
+    try (var server = Server.start()) {
+      var target = Tests.newTempDirectory().resolve("data.bin");
+      var corrupted = DATA.clone();
+      corrupted[123] ^= 1;
+      writePart(target, corrupted, server.etag);
+      var source = server.uri("/data#" + fragment(DATA));
+      assertThrows(AssertionError.class, () -> server.browser().copy(source, target));
+      assertPartDeleted(target);
+      assertTrue(Files.notExists(target), "no target written");
+    }
+  }
+
+  static void testDownloadsOfOtherHostsStartWhileHostIsBusy() throws Exception {
+    try (var a = Server.start();
+        var b = Server.start()) {
+      a.delay = 200;
+      var directory = Tests.newTempDirectory();
+      var downloads = new LinkedHashMap<URI, Path>();
+      downloads.put(a.uri("/data?1"), directory.resolve("1.bin"));
+      downloads.put(a.uri("/data?2"), directory.resolve("2.bin"));
+      downloads.put(b.uri("/data?3"), directory.resolve("3.bin"));
+      var completed = new CopyOnWriteArrayList<String>();
+      var browser = a.browser();
+      var files = browser.download(downloads, 2, 1, (uri, file) -> completed.add(uri.getQuery()));
+      assertEquals(List.copyOf(downloads.values()), files);
+      assertEquals(List.of("3", "1", "2"), completed);
+      assertEquals(1, a.maximum.get());
+      for (var file : files) assertTrue(Arrays.equals(DATA, Files.readAllBytes(file)), "" + file);
+    }
+  }
+
+  static String fragment(byte[] bytes) throws Exception {
+    var digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+    return "content-length=" + bytes.length + "&sha256=" + HexFormat.of().formatHex(digest);
+  }
+
+  static void writePart(Path target, byte[] bytes, String validator) throws Exception {
+    Files.write(target.resolveSibling(target.getFileName() + ".part"), bytes);
+    Files.writeString(target.resolveSibling(target.getFileName() + ".part.if-range"), validator);
+  }
+
+  static void assertPartDeleted(Path target) {
+    var part = target.resolveSibling(target.getFileName() + ".part");
+    assertTrue(Files.notExists(part), "part file deleted: " + part);
+    var validator = target.resolveSibling(target.getFileName() + ".part.if-range");
+    assertTrue(Files.notExists(validator), "validator file deleted: " + validator);
+  }
+
+  /** An HTTP server of {@link #DATA} supporting range requests and redirects. */
+  static final class Server implements AutoCloseable {
+    final HttpServer server;
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    final Path directory = Tests.newTempDirectory();
+    final List<String> requests = new CopyOnWriteArrayList<>();
+    final List<String> ranges = new CopyOnWriteArrayList<>();
+    final String etag = "\"v1\"";
+    volatile boolean ignoreRangeStart;
+    volatile boolean chunked;
+    volatile long delay;
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger maximum = new AtomicInteger();
+
+    static Server start() throws Exception {
+      return new Server(HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0));
+    }
+
+    Server(HttpServer server) {
+      this.server = server;
+      server.setExecutor(executor);
+      server.createContext("/data", this::data);
+      server.createContext(
+          "/redirect",
+          exchange -> {
+            requests.add(exchange.getRequestURI().toString());
+            exchange.getResponseHeaders().add("Location", "/data");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+          });
+      server.start();
+    }
+
+    URI uri(String path) {
+      return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    DukeBrowser browser() {
+      var client =
+          HttpClient.newBuilder()
+              .version(HttpClient.Version.HTTP_1_1)
+              .followRedirects(HttpClient.Redirect.NORMAL)
+              .build();
+      var cache = new DukeCache(directory.resolve("cache"), 0);
+      return new DukeBrowser(client, cache, new DukeHttpCache(directory.resolve("http")));
+    }
+
+    private void data(HttpExchange exchange) throws IOException {
+      maximum.accumulateAndGet(active.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(delay);
+        respond(exchange);
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      } finally {
+        active.decrementAndGet();
+      }
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+      requests.add(exchange.getRequestURI().toString());
+      var headers = exchange.getResponseHeaders();
+      headers.add("ETag", etag);
+      var range = exchange.getRequestHeaders().getFirst("Range");
+      var ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+      if (range != null) ranges.add(range);
+      if (range != null && (ifRange == null || ifRange.equals(etag))) {
+        var first = Integer.parseInt(range.substring(6, range.length() - 1));
+        if (first >= DATA.length) {
+          headers.add("Content-Range", "bytes */" + DATA.length);
+          exchange.sendResponseHeaders(416, -1);
+          exchange.close();
+          return;
+        }
+        var start = ignoreRangeStart ? 0 : first;
+        var last = DATA.length - 1;
+        headers.add("Content-Range", "bytes %d-%d/%d".formatted(start, last, DATA.length));
+        send(exchange, 206, Arrays.copyOfRange(DATA, start, DATA.length));
+        return;
+      }
+      send(exchange, 200, DATA);
+    }
+
+    private void send(HttpExchange exchange, int code, byte[] bytes) throws IOException {
+      exchange.sendResponseHeaders(code, chunked ? 0 : bytes.length);
+      try (var body = exchange.getResponseBody()) {
+        body.write(bytes);
+      }
+    }
+
+    @Override
+    public void close() {
+      server.stop(0);
+      executor.shutdownNow();
+    }
+  }
+}
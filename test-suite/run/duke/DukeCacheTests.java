@@ -0,0 +1,92 @@
+package run.duke;
+
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertTrue;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Optional;
+
+class DukeCacheTests {
+  static void testSystemCacheIsOptIn() {
+    assertTrue(!DukeCache.ofSystem().enabled(), "disabled by default");
+    System.setProperty("uke.cache", "");
+    try {
+      assertTrue(DukeCache.ofSystem().enabled(), "enabled by -Duke.cache");
+    } finally {
+      System.clearProperty("uke.cache");
+    }
+  }
+
+  static void testUriWithoutChecksumIsNotCached() throws Exception {
+    var cache = new DukeCache(Tests.newTempDirectory().resolve("cache"), 1000);
+    var source = URI.create("https://host/file.txt");
+    assertEquals(Optional.empty(), cache.file(source));
+    var file = Tests.write(Tests.newTempDirectory().resolve("file.txt"), "text");
+    assertEquals(file, cache.store(source, file));
+    assertEquals(Optional.empty(), cache.find(source));
+    assertTrue(Files.notExists(cache.root()), "nothing cached");
+  }
+
+  static void testFindDoesNotTouchMaterializedFiles() throws Exception {
+    var cache = new DukeCache(Tests.newTempDirectory().resolve("cache"), 1000);
+    var source = uri("text");
+    var file = Tests.write(Tests.newTempDirectory().resolve("file.txt"), "text");
+    cache.store(source, file);
+    var time = FileTime.fromMillis(1_000_000);
+    Files.setLastModifiedTime(file, time);
+    var cached = cache.find(source).orElseThrow();
+    assertEquals("text", Files.readString(cached));
+    assertEquals(time, Files.getLastModifiedTime(file));
+  }
+
+  static void testCorruptedFileIsDeletedOnFind() throws Exception {
+    var cache = new DukeCache(Tests.newTempDirectory().resolve("cache"), 1000);
+    var source = uri("text");
+    var cached = cache.file(source).orElseThrow();
+    Tests.write(cached, "tampered");
+    assertEquals(Optional.empty(), cache.find(source));
+    assertTrue(Files.notExists(cached), "corrupted file deleted");
+  }
+
+  static void testEvictDeletesLeastRecentlyUsedFiles() throws Exception {
+    var cache = new DukeCache(Tests.newTempDirectory().resolve("cache"), 10);
+    var directory = Tests.newTempDirectory();
+    cache.store(uri("123456"), Tests.write(directory.resolve("1"), "123456"));
+    cache.store(uri("abcdef"), Tests.write(directory.resolve("2"), "abcdef"));
+    // stored within the eviction interval, capacity is exceeded until the next eviction
+    assertTrue(cache.find(uri("abcdef")).isPresent(), "abcdef present");
+    Thread.sleep(20);
+    assertTrue(cache.find(uri("123456")).isPresent(), "123456 present");
+    cache.evict();
+    assertTrue(cache.find(uri("123456")).isPresent(), "recently used 123456 kept");
+    assertEquals(Optional.empty(), cache.find(uri("abcdef")));
+  }
+
+  static void testBrowserCopiesCachedFileWithoutRequest() throws Exception {
+    try (var server = DukeBrowserTests.Server.start()) {
+      var cache = new DukeCache(server.directory.resolve("cache"), 1_000_000);
+      var browser = server.browser();
+      browser = new DukeBrowser(browser.client(), cache, browser.http());
+      var digest = MessageDigest.getInstance("SHA-256").digest(DukeBrowserTests.DATA);
+      var source = server.uri("/data#sha256=" + HexFormat.of().formatHex(digest));
+      var directory = Tests.newTempDirectory();
+      browser.copy(source, directory.resolve("1.bin"));
+      browser.copy(source, directory.resolve("2.bin"));
+      assertEquals(1, server.requests.size());
+      var bytes = Files.readAllBytes(directory.resolve("2.bin"));
+      assertTrue(Arrays.equals(DukeBrowserTests.DATA, bytes), "cached copy equals data");
+    }
+  }
+
+  private static URI uri(String content) throws Exception {
+    var digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes());
+    var sha256 = HexFormat.of().formatHex(digest);
+    var fragment = "content-length=" + content.length() + "&sha256=" + sha256;
+    return URI.create("https://host/" + content + "#" + fragment);
+  }
+}
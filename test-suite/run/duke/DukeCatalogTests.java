@@ -0,0 +1,77 @@
+package run.duke;
+
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertTrue;
+
+import java.lang.module.ModuleFinder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+class DukeCatalogTests {
+  static void testStoreAndLoad() {
+    var file = Tests.newTempDirectory().resolve("catalog/1234.txt");
+    var entries =
+        List.of(
+            new DukeCatalog.Entry("foo", "foo.Foo", List.of()),
+            new DukeCatalog.Entry("bar", "bar.Bar", List.of("foo", "javac")));
+    new DukeCatalog(entries).store(file);
+    assertEquals(Optional.of(new DukeCatalog(entries)), DukeCatalog.load(file));
+  }
+
+  static void testStoreDeletesOnlyExpiredCatalogs() throws Exception {
+    var directory = Tests.newTempDirectory().resolve("catalog");
+    new DukeCatalog(List.of()).store(directory.resolve("old.txt"));
+    new DukeCatalog(List.of()).store(directory.resolve("other.txt"));
+    var expired = Instant.now().minus(DukeCatalog.RETENTION).minusSeconds(60);
+    Files.setLastModifiedTime(directory.resolve("old.txt"), FileTime.from(expired));
+    new DukeCatalog(List.of()).store(directory.resolve("new.txt"));
+    try (var stream = Files.list(directory)) {
+      var expected = Set.of(directory.resolve("new.txt"), directory.resolve("other.txt"));
+      assertEquals(expected, Set.copyOf(stream.toList()));
+    }
+  }
+
+  static void testLoadMarksCatalogAsUsed() throws Exception {
+    var file = Tests.newTempDirectory().resolve("catalog/used.txt");
+    new DukeCatalog(List.of()).store(file);
+    var old = FileTime.from(Instant.now().minus(DukeCatalog.RETENTION));
+    Files.setLastModifiedTime(file, old);
+    assertTrue(DukeCatalog.load(file).isPresent(), "loaded");
+    assertTrue(Files.getLastModifiedTime(file).compareTo(old) > 0, "marked as used");
+  }
+
+  static void testFileChangesWhenModuleOfLayerIsRecompiled() throws Exception {
+    var root = Tests.newTempDirectory();
+    var folders = DukeFolders.of(root);
+    var sources = root.resolve("src");
+    var classes = root.resolve("classes");
+    Tests.write(sources.resolve("foo/module-info.java"), "module foo {}");
+    DukeSources.compileModulesInWaves(sources, root.resolve("lib"), classes, Set.of("foo"));
+
+    var file = DukeCatalog.file(folders, newModuleLayer(classes));
+    assertEquals(file, DukeCatalog.file(folders, newModuleLayer(classes)));
+
+    var info = classes.resolve("foo/module-info.class");
+    var time = Files.getLastModifiedTime(info).toMillis();
+    Files.setLastModifiedTime(info, FileTime.fromMillis(time + 2000));
+    var changed = DukeCatalog.file(folders, newModuleLayer(classes));
+    assertTrue(!file.equals(changed), "catalog file of recompiled layer must differ: " + file);
+  }
+
+  static void testMissingCatalogFileIsEmpty() {
+    var file = Tests.newTempDirectory().resolve(Path.of("catalog", "missing.txt"));
+    assertEquals(Optional.empty(), DukeCatalog.load(file));
+  }
+
+  private static ModuleLayer newModuleLayer(Path classes) {
+    var parent = ModuleLayer.boot();
+    var configuration =
+        parent.configuration().resolve(ModuleFinder.of(classes), ModuleFinder.of(), Set.of("foo"));
+    return parent.defineModulesWithOneLoader(configuration, ClassLoader.getSystemClassLoader());
+  }
+}
@@ -0,0 +1,80 @@
+package run.duke;
+
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertThrows;
+import static run.duke.Tests.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.System.Logger.Level;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.util.OptionalInt;
+import jdk.tools.ToolNotFoundException;
+
+class DukeDaemonTests {
+  static void testSecondDaemonKeepsSocketOfLiveDaemon() throws Exception {
+    var folders = DukeFolders.of(Tests.newTempDirectory());
+    var socket = DukeDaemon.socket(folders);
+    Files.createDirectories(socket.getParent());
+    try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(socket));
+      var err = new StringWriter();
+      var writer = new PrintWriter(err, true);
+      var output = new DukeOutput(writer, writer, Level.WARNING);
+      var code = new DukeDaemon(folders, output).serve();
+      assertEquals(DukeToolProvider.ErrorCode.TASK_ERROR.ordinal(), code);
+      assertTrue(err.toString().contains("already listening"), err.toString());
+      assertTrue(DukeDaemon.isListening(socket), "socket of live daemon kept");
+    }
+  }
+
+  static void testMissingToolFailsAlikeInDaemonAndInProcess() throws Exception {
+    var folders = DukeFolders.of(Tests.newTempDirectory());
+    var writer = new PrintWriter(new StringWriter(), true);
+    var output = new DukeOutput(writer, writer, Level.WARNING);
+    var local =
+        assertThrows(
+            ToolNotFoundException.class,
+            () -> DukeToolProvider.run(folders, output, new DukeTimings(), "missing"));
+    var daemon = new Thread(() -> serveUntilInterrupted(new DukeDaemon(folders, output)));
+    daemon.setDaemon(true);
+    daemon.start();
+    try {
+      var socket = DukeDaemon.socket(folders);
+      for (int i = 0; i < 100 && !DukeDaemon.isListening(socket); i++) Thread.sleep(50);
+      var remote =
+          assertThrows(
+              ToolNotFoundException.class,
+              () -> DukeDaemon.runRemotely(folders, writer, writer, "missing"));
+      assertEquals(local.getMessage(), remote.getMessage());
+    } finally {
+      daemon.interrupt();
+      daemon.join(5000);
+    }
+  }
+
+  static void testClientWithDukePropertiesRunsInProcess() throws Exception {
+    var folders = DukeFolders.of(Tests.newTempDirectory());
+    var socket = DukeDaemon.socket(folders);
+    Files.createDirectories(socket.getParent());
+    try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(socket));
+      System.setProperty("uke.verbose", "true");
+      var writer = new PrintWriter(new StringWriter());
+      assertEquals(OptionalInt.empty(), DukeDaemon.runRemotely(folders, writer, writer, "jar"));
+    } finally {
+      System.clearProperty("uke.verbose");
+    }
+  }
+
+  private static void serveUntilInterrupted(DukeDaemon daemon) {
+    try {
+      daemon.serve();
+    } catch (RuntimeException expected) {
+      // closed by interrupt
+    }
+  }
+}
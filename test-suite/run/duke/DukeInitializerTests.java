@@ -0,0 +1,157 @@
+package run.duke;
+
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.tools.Tool;
+import jdk.tools.ToolFinder;
+import jdk.tools.ToolInstaller;
+
+class DukeInitializerTests {
+  static void testRecordedToolsAreFoundWithoutCallingInstaller() throws Exception {
+    var root = Tests.newTempDirectory();
+    var installer = new CountingInstaller();
+    newHelper(root).install(installer, "1");
+    assertEquals(1, installer.calls.get());
+    var folder = DukeFolders.of(root).tools("counting", "1");
+    assertTrue(Files.isRegularFile(DukeInstallMarker.file(folder)), "marker written");
+    assertTrue(Files.notExists(DukeInstallMarker.flag(folder)), "flag deleted");
+
+    var finder = newHelper(root).install(installer, "1");
+    assertEquals(Optional.empty(), finder.find("ar"));
+    var tool = finder.find("jar").orElseThrow();
+    assertEquals("jar", tool.name());
+    assertEquals(List.of("jar"), finder.tools().stream().map(Tool::name).toList());
+    assertEquals(1, installer.calls.get());
+
+    var writer = new PrintWriter(new StringWriter());
+    assertEquals(0, tool.provider().run(writer, writer, "--version"));
+    assertEquals(2, installer.calls.get());
+  }
+
+  static void testInstallationWithoutMarkerIsAdopted() throws Exception {
+    var root = Tests.newTempDirectory();
+    var folder = DukeFolders.of(root).tools("counting", "1");
+    Tests.write(folder.resolve("tool.txt"), "installed before markers");
+    var installer = new CountingInstaller();
+    newHelper(root).install(installer, "1");
+    assertEquals("installed before markers", Files.readString(folder.resolve("tool.txt")));
+    assertTrue(Files.isRegularFile(DukeInstallMarker.file(folder)), "marker written");
+  }
+
+  static void testFlaggedInstallationIsReplaced() throws Exception {
+    var root = Tests.newTempDirectory();
+    var folder = DukeFolders.of(root).tools("counting", "1");
+    Tests.write(folder.resolve("tool.txt"), "partial");
+    Tests.write(DukeInstallMarker.flag(folder), "1");
+    newHelper(root).install(new CountingInstaller(), "1");
+    assertEquals(CountingInstaller.CONTENT, Files.readString(folder.resolve("tool.txt")));
+    assertTrue(Files.notExists(DukeInstallMarker.flag(folder)), "flag deleted");
+  }
+
+  static void testModifiedInstallationIsVerifiedAndReplaced() throws Exception {
+    var root = Tests.newTempDirectory();
+    var folder = DukeFolders.of(root).tools("counting", "1");
+    newHelper(root).install(new CountingInstaller(), "1");
+    var file = folder.resolve("tool.txt");
+    Files.writeString(file, CountingInstaller.CONTENT.replace('t', 'T'));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+
+    var finder = newHelper(root).install(new CountingInstaller(), "1");
+    assertEquals("jar", finder.find("jar").orElseThrow().name());
+    assertEquals(CountingInstaller.CONTENT, Files.readString(file));
+  }
+
+  static void testTouchedInstallationIsVerifiedAndTrustedAgain() throws Exception {
+    var root = Tests.newTempDirectory();
+    var folder = DukeFolders.of(root).tools("counting", "1");
+    var installer = new CountingInstaller();
+    newHelper(root).install(installer, "1");
+    var marker = Files.readString(DukeInstallMarker.file(folder));
+    var file = folder.resolve("tool.txt");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+
+    newHelper(root).install(installer, "1");
+    assertEquals(1, installer.calls.get());
+    assertTrue(!marker.equals(Files.readString(DukeInstallMarker.file(folder))), "time recorded");
+    var trusted = DukeInstallMarker.load(DukeInstallMarker.file(folder)).orElseThrow();
+    assertTrue(trusted.isIntact(folder, false), "trusted");
+  }
+
+  static void testChecksumsAreVerifiedOnRequest() throws Exception {
+    var root = Tests.newTempDirectory();
+    var folder = DukeFolders.of(root).tools("counting", "1");
+    newHelper(root).install(new CountingInstaller(), "1");
+    var file = folder.resolve("tool.txt");
+    var time = Files.getLastModifiedTime(file);
+    var corrupted = CountingInstaller.CONTENT.replace('t', 'T');
+    Files.writeString(file, corrupted);
+    Files.setLastModifiedTime(file, time);
+
+    newHelper(root).install(new CountingInstaller(), "1");
+    assertEquals(corrupted, Files.readString(file));
+    System.setProperty("uke.verify", "true");
+    try {
+      newHelper(root).install(new CountingInstaller(), "1");
+    } finally {
+      System.clearProperty("uke.verify");
+    }
+    assertEquals(CountingInstaller.CONTENT, Files.readString(file));
+  }
+
+  static void testHelpersOfOneProcessInstallConcurrently() throws Exception {
+    var root = Tests.newTempDirectory();
+    var installer = new CountingInstaller();
+    var executor = Executors.newFixedThreadPool(8);
+    try {
+      var futures = new ArrayList<Future<ToolFinder>>();
+      for (int i = 0; i < 8; i++) {
+        var helper = newHelper(root);
+        futures.add(executor.submit(() -> helper.install(installer, "1")));
+      }
+      for (var future : futures) assertEquals("jar", future.get().find("jar").orElseThrow().name());
+    } finally {
+      executor.shutdownNow();
+    }
+    var folder = DukeFolders.of(root).tools("counting", "1");
+    assertTrue(Files.isRegularFile(DukeInstallMarker.file(folder)), "marker written");
+  }
+
+  private static DukeInitializer.Helper newHelper(Path root) {
+    var writer = new PrintWriter(new StringWriter());
+    var printer = new DukeOutput(writer, writer, Level.WARNING).toPrinter();
+    var configuration = new DukeConfiguration(printer, DukeFolders.of(root), ModuleLayer.boot());
+    return new DukeInitializer.Helper(configuration);
+  }
+
+  /** Writes a file unless it exists, and provides the {@code jar} tool. */
+  static final class CountingInstaller implements ToolInstaller {
+    static final String CONTENT = "installed tool";
+    final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public String name() {
+      return "counting";
+    }
+
+    @Override
+    public ToolFinder install(Path folder, String version) throws Exception {
+      calls.incrementAndGet();
+      var file = folder.resolve("tool.txt");
+      if (Files.notExists(file)) Files.writeString(file, CONTENT);
+      return ToolFinder.of(Tool.of("jar"));
+    }
+  }
+}
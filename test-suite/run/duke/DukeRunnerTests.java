@@ -0,0 +1,84 @@
+package run.duke;
+
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertThrows;
+
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger.Level;
+import java.util.List;
+import java.util.spi.ToolProvider;
+import jdk.tools.Command;
+import jdk.tools.Tool;
+import jdk.tools.ToolFinder;
+
+class DukeRunnerTests {
+  static final String NL = System.lineSeparator();
+
+  static void testPipeAppendsOutputLinesAsArguments() {
+    var out = new DukeCapture();
+    run(out, "echo", "a", "", "b", DukeRunner.PIPE, "echo", "x");
+    assertEquals("x" + NL + "a" + NL + "b" + NL, out.toString());
+  }
+
+  static void testPipelineIsEvaluatedFromTheLeft() {
+    var out = new DukeCapture();
+    var pipe = DukeRunner.PIPE;
+    run(out, "echo", "a", "b", pipe, "echo", "c", pipe, "count", "+", "echo", "z");
+    assertEquals("3" + NL + "z" + NL, out.toString());
+  }
+
+  static void testPipeRethrowsFailureOfSource() {
+    var out = new DukeCapture();
+    assertThrows(RuntimeException.class, () -> run(out, "fail", DukeRunner.PIPE, "count"));
+    assertEquals("", out.toString());
+  }
+
+  static void testPipeWithoutTargetIsRejected() {
+    var out = new DukeCapture();
+    assertThrows(IllegalArgumentException.class, () -> run(out, "echo", DukeRunner.PIPE));
+  }
+
+  static void testClosedPipeReaderStopsPrintingWriter() throws Exception {
+    var pipe = new DukePipe(16);
+    var out = new PrintWriter(pipe.writer());
+    out.println("a");
+    pipe.reader().close();
+    assertThrows(UncheckedIOException.class, () -> out.println("b"));
+  }
+
+  static void testCaptureAndConcurrentOutputInCommandOrder() {
+    var out = new DukeCapture();
+    var runner = newRunner(out);
+    assertEquals("1" + NL + "2" + NL, runner.capture(Command.of("echo", 1, 2)));
+    runner.runConcurrently(List.of(Command.of("echo", "a"), Command.of("echo", "b")));
+    assertEquals("a" + NL + "b" + NL, out.toString());
+  }
+
+  private static void run(PrintWriter out, String... args) {
+    var runner = newRunner(out);
+    for (var stage : DukeToolProvider.toTaskStages(args)) runner.runAll(stage.commands());
+  }
+
+  private static DukeRunner newRunner(PrintWriter out) {
+    var tools = List.of("echo", "count", "fail").stream().map(TestTool::new).map(Tool::of);
+    var finder = ToolFinder.of(tools.toList());
+    var output = new DukeOutput(out, new DukeCapture(), Level.WARNING);
+    return DukeRunner.of(finder, output.toPrinter(), output);
+  }
+
+  /** Prints each argument, prints the number of arguments, or fails; depending on its name. */
+  record TestTool(String name) implements ToolProvider {
+    @Override
+    public int run(PrintWriter out, PrintWriter err, String... args) {
+      switch (name) {
+        case "echo" -> List.of(args).forEach(out::println);
+        case "count" -> out.println(args.length);
+        default -> {
+          return 1;
+        }
+      }
+      return 0;
+    }
+  }
+}
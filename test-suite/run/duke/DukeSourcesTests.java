@@ -0,0 +1,113 @@
+package run.duke;
+
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+class DukeSourcesTests {
+  static void testModulePathContainsOnlyFinishedModules() {
+    var classes = Path.of("classes");
+    var path = DukeSources.computeModulePath(Path.of("lib"), classes, new TreeSet<>(Set.of("a")));
+    assertEquals(String.join(File.pathSeparator, "lib", classes.resolve("a").toString()), path);
+  }
+
+  static void testWavesCompileAgainstUnchangedAndFinishedModules() throws Exception {
+    var root = Tests.newTempDirectory();
+    var sources = root.resolve("src");
+    var classes = root.resolve("classes");
+    Tests.write(sources.resolve("foo/module-info.java"), "module foo { exports foo; }");
+    Tests.write(sources.resolve("foo/foo/Foo.java"), "package foo; public class Foo {}");
+    Tests.write(sources.resolve("bar/module-info.java"), "module bar { requires foo; }");
+    Tests.write(sources.resolve("bar/bar/Bar.java"), "package bar; class Bar { foo.Foo f; }");
+    Tests.write(sources.resolve("baz/module-info.java"), "module baz { requires bar; }");
+    Tests.write(sources.resolve("baz/baz/Baz.java"), "package baz; class Baz {}");
+
+    DukeSources.compileModulesInWaves(sources, root.resolve("lib"), classes, Set.of("foo", "bar"));
+    assertTrue(Files.isRegularFile(classes.resolve("bar/bar/Bar.class")), "bar compiled");
+
+    // "foo" and "bar" are unchanged and already compiled, only "baz" is pending
+    DukeSources.compileModulesInWaves(sources, root.resolve("lib"), classes, Set.of("baz"));
+    assertTrue(Files.isRegularFile(classes.resolve("baz/baz/Baz.class")), "baz compiled");
+    assertEquals(List.of("bar", "baz", "foo"), DukeSources.computeModuleDirectoryNames(classes));
+  }
+
+  static void testUnchangedSourcesAreNotCompiledAgain() throws Exception {
+    var root = writeModules();
+    assertEquals(Set.of("foo", "bar", "baz"), compileChangedModules(root, "salt"));
+    assertEquals(Set.of(), compileChangedModules(root, "salt"));
+  }
+
+  static void testTouchedModuleIsCompiledWithItsDependents() throws Exception {
+    var root = writeModules();
+    compileChangedModules(root, "salt");
+    var bar = root.resolve("src/bar/bar/Bar.java");
+    var time = Files.getLastModifiedTime(bar).toMillis();
+    Files.setLastModifiedTime(bar, FileTime.fromMillis(time + 2000));
+    assertEquals(Set.of(), compileChangedModules(root, "salt")); // same content
+    Files.writeString(bar, "package bar; class Bar { foo.Foo f; int i; }");
+    assertEquals(Set.of("bar", "baz"), compileChangedModules(root, "salt"));
+    assertEquals(Set.of(), compileChangedModules(root, "salt"));
+  }
+
+  static void testDeletedSourceFileRecompilesModule() throws Exception {
+    var root = writeModules();
+    Tests.write(root.resolve("src/baz/baz/Extra.java"), "package baz; class Extra {}");
+    compileChangedModules(root, "salt");
+    assertTrue(Files.isRegularFile(root.resolve("classes/baz/baz/Extra.class")), "compiled");
+    Files.delete(root.resolve("src/baz/baz/Extra.java"));
+    assertEquals(Set.of("baz"), compileChangedModules(root, "salt"));
+    assertTrue(Files.notExists(root.resolve("classes/baz/baz/Extra.class")), "class deleted");
+  }
+
+  static void testChangedSaltRecompilesAllModules() throws Exception {
+    var root = writeModules();
+    compileChangedModules(root, "17|lib.jar/1/2");
+    var all = Set.of("foo", "bar", "baz");
+    assertEquals(all, compileChangedModules(root, "21|lib.jar/1/2"));
+    assertEquals(all, compileChangedModules(root, "21|lib.jar/1/3"));
+  }
+
+  static void testDependentsOfUnchangedModulesAreNotComputed() throws Exception {
+    var missing = Tests.newTempDirectory().resolve("missing");
+    var roots = List.of("foo", "bar");
+    assertEquals(Set.of(), DukeSources.computeDependentModuleNames(missing, roots, Set.of()));
+  }
+
+  static void testLibraryDescriptionCoversOnlyModules() throws Exception {
+    var bin = Tests.newTempDirectory();
+    Tests.write(bin.resolve("run.duke.jar"), "jar");
+    var description = DukeFingerprints.describe(bin);
+    Tests.write(bin.resolve("duke.jsa"), "archive");
+    Tests.write(bin.resolve("sources/foo@123.jar"), "jar");
+    assertEquals(description, DukeFingerprints.describe(bin));
+    Tests.write(bin.resolve("jdk.tools.jar"), "jar");
+    assertTrue(!description.equals(DukeFingerprints.describe(bin)), "new jar described");
+  }
+
+  /** Writes modules "foo", "bar" requiring "foo", and "baz" requiring "bar". */
+  private static Path writeModules() {
+    var root = Tests.newTempDirectory();
+    var sources = root.resolve("src");
+    Tests.write(sources.resolve("foo/module-info.java"), "module foo { exports foo; }");
+    Tests.write(sources.resolve("foo/foo/Foo.java"), "package foo; public class Foo {}");
+    Tests.write(sources.resolve("bar/module-info.java"), "module bar { requires foo; }");
+    Tests.write(sources.resolve("bar/bar/Bar.java"), "package bar; class Bar { foo.Foo f; }");
+    Tests.write(sources.resolve("baz/module-info.java"), "module baz { requires bar; }");
+    Tests.write(sources.resolve("baz/baz/Baz.java"), "package baz; class Baz {}");
+    return root;
+  }
+
+  private static Set<String> compileChangedModules(Path root, String salt) {
+    var sources = root.resolve("src");
+    var roots = DukeSources.computeModuleCompilationUnitNames(sources);
+    var classes = root.resolve("classes");
+    return DukeSources.compileChangedModules(sources, sources, classes, roots, salt).compiled();
+  }
+}
@@ -0,0 +1,34 @@
+package run.duke;
+
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertTrue;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Set;
+
+class DukeWatcherTests {
+  static final Duration QUIET = Duration.ofMillis(200);
+
+  static void testChangesPolledAfterRunAreNotAwaited() throws Exception {
+    var root = Tests.newTempDirectory();
+    try (var watcher = new DukeWatcher(path -> false, root)) {
+      Tests.write(root.resolve("lib/x.jar"), "written by the run");
+      var ignored = watcher.poll(QUIET);
+      assertTrue(ignored.contains(root.resolve("lib")), "ignored: " + ignored);
+      Tests.write(root.resolve("Source.java"), "edited");
+      assertEquals(Set.of(root.resolve("Source.java")), watcher.await(QUIET));
+      assertEquals(Set.of(), watcher.poll(QUIET));
+    }
+  }
+
+  static void testExcludedPathsAreIgnored() throws Exception {
+    var root = Tests.newTempDirectory();
+    var out = Files.createDirectories(root.resolve("out"));
+    try (var watcher = new DukeWatcher(path -> path.startsWith(out), root)) {
+      Tests.write(out.resolve("a.txt"), "excluded");
+      Tests.write(root.resolve("b.txt"), "watched");
+      assertEquals(Set.of(root.resolve("b.txt")), watcher.await(QUIET));
+    }
+  }
+}
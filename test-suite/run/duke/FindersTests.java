@@ -0,0 +1,46 @@
+package run.duke;
+
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.spi.ToolProvider;
+
+class FindersTests {
+  static void testTrustedCatalogMissInstantiatesNoProvider() {
+    var loader = ServiceLoader.load(ModuleLayer.boot(), ToolProvider.class);
+    var finder = newLazyToolFinder(loader, DukeCatalog.of(loader));
+    assertEquals(Optional.empty(), finder.find("no-such-tool"));
+    assertEquals(0, finder.instances());
+    assertEquals("jar", finder.find("jar").orElseThrow().name());
+    assertEquals(1, finder.instances());
+  }
+
+  static void testEmptyCatalogScansAllProviders() {
+    var loader = ServiceLoader.load(ModuleLayer.boot(), ToolProvider.class);
+    var finder = newLazyToolFinder(loader, new DukeCatalog(List.of()));
+    assertEquals("jar", finder.find("jar").orElseThrow().name());
+    assertEquals(Optional.empty(), finder.find("no-such-tool"));
+  }
+
+  static void testStaleCatalogScansAllProviders() {
+    var loader = ServiceLoader.load(ModuleLayer.boot(), ToolProvider.class);
+    var entries = new ArrayList<>(DukeCatalog.of(loader).entries());
+    entries.removeIf(entry -> entry.name().equals("jar"));
+    entries.add(new DukeCatalog.Entry("ghost", "ghost.Provider", List.of()));
+    var catalog = new DukeCatalog(entries);
+    var providers = loader.stream().toList();
+    assertTrue(!Finders.LazyToolFinder.isCatalogOf(catalog, providers), "stale: " + catalog);
+    var finder = new Finders.LazyToolFinder(providers, catalog);
+    assertEquals("jar", finder.find("jar").orElseThrow().name());
+    assertEquals(Optional.empty(), finder.find("ghost"));
+  }
+
+  private static Finders.LazyToolFinder newLazyToolFinder(
+      ServiceLoader<ToolProvider> loader, DukeCatalog catalog) {
+    return new Finders.LazyToolFinder(loader.stream().toList(), catalog);
+  }
+}
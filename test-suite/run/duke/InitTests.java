@@ -0,0 +1,79 @@
+package run.duke;
+
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+class InitTests {
+  static void testUpToDateWithModuleSourcePathOfDirectories() throws Exception {
+    var root = Tests.newTempDirectory();
+    Tests.write(root.resolve("src/foo/module-info.java"), "module foo {}");
+    var stamp = compile(root, "foo");
+    var path = root.resolve("src").toString();
+    assertTrue(Init.isUpToDate(stamp, root.resolve("classes"), path, List.of("foo")), "current");
+    var info = root.resolve("src/foo/module-info.java");
+    Files.setLastModifiedTime(info, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+    assertTrue(!Init.isUpToDate(stamp, root.resolve("classes"), path, List.of("foo")), "edited");
+  }
+
+  static void testUpToDateWithModuleSpecificSourcePath() throws Exception {
+    var root = Tests.newTempDirectory();
+    Tests.write(root.resolve("foo/module-info.java"), "module foo {}");
+    var stamp = compile(root, "foo");
+    var classes = root.resolve("classes");
+    var path = "foo=" + root.resolve("foo");
+    assertTrue(Init.isUpToDate(stamp, classes, path, List.of("foo")), "current");
+    var info = root.resolve("foo/module-info.java");
+    Files.setLastModifiedTime(info, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+    assertTrue(!Init.isUpToDate(stamp, classes, path, List.of("foo")), "edited");
+  }
+
+  static void testNotUpToDateWithoutSources() throws Exception {
+    var root = Tests.newTempDirectory();
+    var stamp = compile(root, "foo");
+    var classes = root.resolve("classes");
+    var missing = root.resolve("missing").toString();
+    assertTrue(!Init.isUpToDate(stamp, classes, missing, List.of("foo")), "no sources");
+    var other = "bar=" + root.resolve("foo");
+    assertTrue(!Init.isUpToDate(stamp, classes, other, List.of("foo")), "other module");
+  }
+
+  static void testModuleSourceDirectories() throws Exception {
+    var root = Tests.newTempDirectory();
+    Files.createDirectories(root.resolve("a/foo"));
+    Files.createDirectories(root.resolve("b/foo"));
+    var path = String.join(File.pathSeparator, "" + root.resolve("a"), "" + root.resolve("b"));
+    var expected = List.of(root.resolve("a/foo"), root.resolve("b/foo"));
+    assertEquals(expected, Init.computeModuleSourceDirectories(path, "foo"));
+    assertEquals(List.of(), Init.computeModuleSourceDirectories(path, "bar"));
+    var specific = Init.computeModuleSourceDirectories("foo=" + path, "foo");
+    assertEquals(List.of(root.resolve("a"), root.resolve("b")), specific);
+  }
+
+  static void testReplaceSectionKeepsOtherLines() {
+    var text = Init.ARG_FILE.formatted("", "").replace("# --show-version", "--show-version");
+    var recording = Init.replaceSection(text, "# Profile options", Init.RECORDING_OPTIONS);
+    var expected = Init.ARG_FILE.formatted(Init.RECORDING_OPTIONS, "");
+    assertEquals(expected.replace("# --show-version", "--show-version"), recording);
+    assertEquals(text, Init.replaceSection(recording, "# Profile options", ""));
+  }
+
+  static void testReplaceSectionInsertsMissingSection() {
+    var text = "-Xmx1g\n--module run.duke\n";
+    var expected = "#\n# Class data sharing archive\n#\n-XX:X\n\n" + text;
+    assertEquals(expected, Init.replaceSection(text, "# Class data sharing archive", "-XX:X"));
+  }
+
+  /** Creates a classes directory of the given module and a stamp file newer than all sources. */
+  private static Path compile(Path root, String module) throws Exception {
+    Files.createDirectories(root.resolve("classes").resolve(module));
+    var stamp = Tests.write(root.resolve("classes.stamp"), "17");
+    Files.setLastModifiedTime(stamp, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+    return stamp;
+  }
+}
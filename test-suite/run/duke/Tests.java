@@ -0,0 +1,131 @@
+package run.duke;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Runs all static no-argument {@code test*} methods of Duke's test classes.
+ *
+ * <p>Test classes are patched into the {@code run.duke} module at compile time and at run time:
+ *
+ * <pre>{@code
+ * javac --module-path BIN --patch-module run.duke=test-suite --add-modules jdk.httpserver
+ *     --add-reads run.duke=jdk.httpserver -d OUT $(find test-suite -name "*.java")
+ * java --module-path BIN --patch-module run.duke=OUT --add-modules jdk.httpserver
+ *     --add-reads run.duke=jdk.httpserver --module run.duke/run.duke.Tests [CLASS...]
+ * }</pre>
+ *
+ * where {@code BIN} is a directory containing the {@code run.duke} and {@code jdk.tools} modules.
+ */
+public final class Tests {
+  static final List<String> CLASSES =
+      List.of(
+          "run.duke.DukeBrowserTests",
+          "run.duke.DukeCacheTests",
+          "run.duke.DukeCatalogTests",
+          "run.duke.DukeDaemonTests",
+          "run.duke.DukeInitializerTests",
+          "run.duke.DukeRunnerTests",
+          "run.duke.DukeSourcesTests",
+          "run.duke.DukeWatcherTests",
+          "run.duke.FindersTests",
+          "run.duke.InitTests",
+          "run.duke.menu.FileMenuTests",
+          "run.duke.menu.PathSupportTests");
+
+  public static void main(String... args) throws Exception {
+    var names = args.length == 0 ? CLASSES : List.of(args);
+    var failures = 0;
+    var successes = 0;
+    for (var name : names) {
+      var methods =
+          Arrays.stream(Class.forName(name).getDeclaredMethods())
+              .filter(Tests::isTestMethod)
+              .sorted(Comparator.comparing(Method::getName))
+              .toList();
+      for (var method : methods) {
+        var caption = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        try {
+          method.setAccessible(true);
+          method.invoke(null);
+          successes++;
+          System.out.println("ok   " + caption);
+        } catch (InvocationTargetException exception) {
+          failures++;
+          System.out.println("FAIL " + caption);
+          exception.getCause().printStackTrace(System.out);
+        }
+      }
+    }
+    System.out.printf("%d successful, %d failed%n", successes, failures);
+    if (failures > 0) System.exit(1);
+  }
+
+  private static boolean isTestMethod(Method method) {
+    return method.getName().startsWith("test")
+        && method.getParameterCount() == 0
+        && Modifier.isStatic(method.getModifiers());
+  }
+
+  @FunctionalInterface
+  public interface Executable {
+    void execute() throws Exception;
+  }
+
+  public static void assertEquals(Object expected, Object actual) {
+    if (Objects.equals(expected, actual)) return;
+    throw new AssertionError("expected: <" + expected + "> but was: <" + actual + ">");
+  }
+
+  public static void assertTrue(boolean condition, String message) {
+    if (!condition) throw new AssertionError(message);
+  }
+
+  public static <T extends Throwable> T assertThrows(Class<T> type, Executable executable) {
+    try {
+      executable.execute();
+    } catch (Throwable throwable) {
+      if (type.isInstance(throwable)) return type.cast(throwable);
+      var message = "expected " + type.getName() + " but caught " + throwable;
+      throw new AssertionError(message, throwable);
+    }
+    throw new AssertionError("expected " + type.getName() + " to be thrown");
+  }
+
+  public static Path newTempDirectory() {
+    try {
+      var directory = Files.createTempDirectory("duke-test-");
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(directory)));
+      return directory;
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  static void delete(Path directory) {
+    try (var stream = Files.walk(directory)) {
+      for (var path : stream.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  public static Path write(Path file, String text) {
+    try {
+      var parent = file.getParent();
+      if (parent != null) Files.createDirectories(parent);
+      return Files.writeString(file, text);
+    } catch (Exception exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  private Tests() {}
+}
@@ -0,0 +1,112 @@
+package run.duke.menu;
+
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import run.duke.Tests;
+
+class FileMenuTests {
+  static void testChecksumShortForm() {
+    var file = Tests.write(Tests.newTempDirectory().resolve("abc.txt"), "abc");
+    var result = checksum(file.toString(), "md5");
+    assertEquals(0, result.code());
+    assertEquals("900150983cd24fb0d6963f7d28e17f72", result.out().strip());
+  }
+
+  static void testChecksumOfTwoFiles() {
+    var directory = Tests.newTempDirectory();
+    var file1 = Tests.write(directory.resolve("1.txt"), "abc");
+    var file2 = Tests.write(directory.resolve("2.txt"), "abc");
+    var result = checksum(file1.toString(), file2.toString());
+    assertEquals(0, result.code());
+    assertEquals(2L, result.out().lines().count());
+  }
+
+  static void testChecksumReportsMissingFileInsteadOfTreatingItAsAlgorithm() {
+    var file = Tests.write(Tests.newTempDirectory().resolve("abc.txt"), "abc");
+    var result = checksum(file.toString(), "abc.txr");
+    assertEquals(1, result.code());
+    assertEquals("No such file: abc.txr", result.err().strip());
+  }
+
+  static void testChecksumReportsMissingAlgorithmValue() {
+    var file = Tests.write(Tests.newTempDirectory().resolve("abc.txt"), "abc");
+    var result = checksum(file.toString(), "--algorithm");
+    assertEquals(1, result.code());
+    assertEquals("Missing value of option: --algorithm", result.err().strip());
+  }
+
+  static void testChecksumWithAlgorithmOptionButWithoutFilesPrintsUsage() {
+    var result = checksum("--algorithm", "SHA-256");
+    assertEquals(1, result.code());
+    assertTrue(result.err().startsWith("Usage: checksum"), result.err());
+  }
+
+  static void testChecksumReportsUnsupportedAlgorithm() {
+    var file = Tests.write(Tests.newTempDirectory().resolve("abc.txt"), "abc");
+    var result = checksum("--algorithm", "SHA-256,CRC-5", file.toString());
+    assertEquals(1, result.code());
+    assertTrue(result.err().contains("CRC-5"), result.err());
+  }
+
+  static void testDownloadReportsMissingOptionValue() {
+    var result = download("--manifest");
+    assertEquals(1, result.code());
+    assertEquals("Missing value of option: --manifest", result.err().strip());
+  }
+
+  static void testDownloadRejectsInvalidCounts() {
+    for (var args : List.of(List.of("--parallel", "x"), List.of("--per-host", "0"))) {
+      var result = download("--manifest", "downloads.txt", args.get(0), args.get(1));
+      assertEquals(1, result.code());
+      assertTrue(result.err().startsWith("Expected a positive number"), result.err());
+      assertTrue(result.err().contains("Usage: download"), result.err());
+    }
+  }
+
+  static void testReadReportsMissingRange() {
+    var result = read("file:///dev/null", "--range");
+    assertEquals(1, result.code());
+    assertEquals("Missing value of option: --range", result.err().strip());
+  }
+
+  static void testReadRejectsInvalidRanges() {
+    for (var range : List.of("", "-", "1", "a-b", "5-3", "1-2-3", "1,2")) {
+      var result = read("--range", range, "file:///dev/null");
+      assertEquals(1, result.code());
+      assertTrue(result.err().startsWith("Invalid range: " + range), result.err());
+    }
+    for (var range : List.of("0-", "0-99", "-10", "7-7")) {
+      assertTrue(FileMenu.Read.isRange(range), range);
+    }
+  }
+
+  record Result(int code, String out, String err) {}
+
+  static Result checksum(String... args) {
+    var out = new StringWriter();
+    var err = new StringWriter();
+    var checksum = new FileMenu.Checksum("checksum");
+    var code = checksum.run(new PrintWriter(out, true), new PrintWriter(err, true), args);
+    return new Result(code, out.toString(), err.toString());
+  }
+
+  static Result download(String... args) {
+    var out = new StringWriter();
+    var err = new StringWriter();
+    var download = new FileMenu.Download("download");
+    var code = download.run(null, new PrintWriter(out, true), new PrintWriter(err, true), args);
+    return new Result(code, out.toString(), err.toString());
+  }
+
+  static Result read(String... args) {
+    var out = new StringWriter();
+    var err = new StringWriter();
+    var read = new FileMenu.Read("read");
+    var code = read.run(null, new PrintWriter(out, true), new PrintWriter(err, true), args);
+    return new Result(code, out.toString(), err.toString());
+  }
+}
@@ -0,0 +1,174 @@
+package run.duke.menu;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static run.duke.Tests.assertEquals;
+import static run.duke.Tests.assertThrows;
+import static run.duke.Tests.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import run.duke.Tests;
+
+class PathSupportTests {
+  static void testUntarGitArchiveWithGlobalHeaderAndStrip() throws Exception {
+    var comment = "52 comment=0123456789abcdef0123456789abcdef01234567\n";
+    var tgz =
+        tgz(
+            entry("pax_global_header", 'g', comment),
+            entry("project/", '5', ""),
+            entry("project/a.txt", '0', "A"),
+            entry("project/sub/b.txt", '0', "B".repeat(700)));
+    var directory = Tests.newTempDirectory().resolve("out");
+    var names = new ArrayList<String>();
+    assertEquals(2, PathSupport.extract(tgz, directory, 1, names::add));
+    assertEquals(List.of("a.txt", Path.of("sub", "b.txt").toString()), names);
+    assertEquals("A", Files.readString(directory.resolve("a.txt")));
+    assertEquals("B".repeat(700), Files.readString(directory.resolve("sub/b.txt")));
+  }
+
+  static void testUntarSkipsPaddingOfStrippedRootLevelFile() throws Exception {
+    var tgz =
+        tgz(
+            entry("README", '0', "hello"),
+            entry("project/", '5', ""),
+            entry("project/a.txt", '0', "A"));
+    var directory = Tests.newTempDirectory().resolve("out");
+    assertEquals(1, PathSupport.extract(tgz, directory, 1, __ -> {}));
+    assertEquals("A", Files.readString(directory.resolve("a.txt")));
+  }
+
+  static void testUntarCreatesLinksWithinDirectory() throws Exception {
+    var tgz = tgz(entry("lib/x.so.1", '0', "X"), link("lib/x.so", "x.so.1"));
+    var directory = Tests.newTempDirectory().resolve("out");
+    assertEquals(2, PathSupport.extract(tgz, directory, 0, __ -> {}));
+    assertTrue(Files.isSymbolicLink(directory.resolve("lib/x.so")), "link created");
+    assertEquals("X", Files.readString(directory.resolve("lib/x.so")));
+  }
+
+  static void testUntarRejectsAbsoluteLinkTarget() throws Exception {
+    var outside = Tests.newTempDirectory().resolve("rvx/outside");
+    Files.createDirectories(outside);
+    var tgz = tgz(link("link", outside.toString()), entry("link/sub/pwned.txt", '0', "pwned"));
+    var directory = Tests.newTempDirectory().resolve("out");
+    assertThrows(IllegalArgumentException.class, () -> extract(tgz, directory));
+    assertTrue(Files.notExists(outside.resolve("sub")), "nothing written outside");
+  }
+
+  static void testUntarRejectsRelativeLinkTargetLeadingOutside() throws Exception {
+    var tgz = tgz(link("link", "../outside"), entry("link/pwned.txt", '0', "pwned"));
+    var directory = Tests.newTempDirectory().resolve("out");
+    assertThrows(IllegalArgumentException.class, () -> extract(tgz, directory));
+    assertTrue(Files.notExists(directory.resolveSibling("outside")), "nothing written outside");
+  }
+
+  static void testUntarRefusesToWriteThroughChainedLinks() throws Exception {
+    // "b/.." looks like "." lexically, but resolves to the parent of "out" via the link "b"
+    var tgz = tgz(link("b", "."), link("a", "b/.."), entry("a/pwned.txt", '0', "pwned"));
+    var directory = Tests.newTempDirectory().resolve("out");
+    assertThrows(IllegalArgumentException.class, () -> extract(tgz, directory));
+    assertTrue(Files.notExists(directory.resolveSibling("pwned.txt")), "nothing written outside");
+  }
+
+  static void testUnzipWithStrip() throws Exception {
+    var zip = zip(List.of("root/", "root/a.txt", "root/sub/b.txt", "c.txt"), List.of());
+    var directory = Tests.newTempDirectory().resolve("out");
+    assertEquals(2, PathSupport.extract(zip, directory, 1, __ -> {}));
+    assertEquals("root/a.txt", Files.readString(directory.resolve("a.txt")));
+    assertEquals("root/sub/b.txt", Files.readString(directory.resolve("sub/b.txt")));
+  }
+
+  static void testUnzipRejectsLinkLeadingOutside() throws Exception {
+    var outside = Tests.newTempDirectory().resolve("rvx/outside");
+    Files.createDirectories(outside);
+    var zip = zip(List.of("link", "link/sub/pwned.txt"), List.of(outside.toString()));
+    var directory = Tests.newTempDirectory().resolve("out");
+    assertThrows(IllegalArgumentException.class, () -> extract(zip, directory));
+    assertTrue(Files.notExists(outside.resolve("sub")), "nothing written outside");
+  }
+
+  private static void extract(Path archive, Path directory) {
+    PathSupport.extract(archive, directory, 0, __ -> {});
+  }
+
+  private static byte[] link(String name, String target) {
+    var header = header(name, '2', 0);
+    var bytes = target.getBytes(StandardCharsets.UTF_8);
+    System.arraycopy(bytes, 0, header, 157, bytes.length);
+    return checksum(header);
+  }
+
+  private static byte[] entry(String name, char type, String content) {
+    var bytes = content.getBytes(StandardCharsets.UTF_8);
+    var header = checksum(header(name, type, bytes.length));
+    var padded = new byte[512 + (bytes.length + 511) / 512 * 512];
+    System.arraycopy(header, 0, padded, 0, 512);
+    System.arraycopy(bytes, 0, padded, 512, bytes.length);
+    return padded;
+  }
+
+  private static byte[] header(String name, char type, long size) {
+    var header = new byte[512];
+    put(header, 0, name);
+    put(header, 100, "0000644");
+    put(header, 108, "0000000");
+    put(header, 116, "0000000");
+    put(header, 124, "%011o".formatted(size));
+    put(header, 136, "%011o".formatted(0));
+    header[156] = (byte) type;
+    put(header, 257, "ustar");
+    put(header, 263, "00");
+    return header;
+  }
+
+  private static byte[] checksum(byte[] header) {
+    for (int i = 148; i < 156; i++) header[i] = ' ';
+    var sum = 0;
+    for (var b : header) sum += b & 0xFF;
+    put(header, 148, "%06o".formatted(sum));
+    header[154] = 0;
+    return header;
+  }
+
+  private static void put(byte[] header, int offset, String value) {
+    var bytes = value.getBytes(StandardCharsets.UTF_8);
+    System.arraycopy(bytes, 0, header, offset, bytes.length);
+  }
+
+  private static Path tgz(byte[]... entries) throws Exception {
+    var tgz = Tests.newTempDirectory().resolve("archive.tgz");
+    try (var out = new GZIPOutputStream(Files.newOutputStream(tgz))) {
+      for (var entry : entries) out.write(entry);
+      out.write(new byte[1024]);
+    }
+    return tgz;
+  }
+
+  /** Writes a ZIP file, the first entries are symbolic links to the given targets. */
+  private static Path zip(List<String> names, List<String> links) throws Exception {
+    var bytes = new ByteArrayOutputStream();
+    try (var out = new ZipOutputStream(bytes)) {
+      for (int i = 0; i < names.size(); i++) {
+        out.putNextEntry(new ZipEntry(names.get(i)));
+        out.write((i < links.size() ? links.get(i) : names.get(i)).getBytes());
+        out.closeEntry();
+      }
+    }
+    var buffer = ByteBuffer.wrap(bytes.toByteArray()).order(LITTLE_ENDIAN);
+    for (int i = 0, linked = 0; i < buffer.limit() - 4 && linked < links.size(); i++) {
+      if (buffer.getInt(i) != 0x02014b50) continue;
+      buffer.putInt(i + 38, 0120777 << 16); // external attributes of a symbolic link
+      linked++;
+    }
+    var zip = Tests.newTempDirectory().resolve("archive.zip");
+    Files.write(zip, buffer.array());
+    return zip;
+  }
+}